@@ -0,0 +1,105 @@
+package Benchmark;
+
+import AsyncLogger.AsyncLoggerManager;
+import AsyncLogger.OverflowPolicy;
+import AsyncLogger.Severity;
+import AsyncLogger.WaitStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+// bytes allocated by the thread that logs with recycled logs, the sink writes nothing so only the producer counts.
+// The main method runs it with the gc profiler and fails if a log allocates more than MAX_BYTES on average:
+// java -cp target/benchmarks.jar Benchmark.AllocationBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx1g"})
+public class AllocationBenchmark {
+	
+	// the pool can be empty for a moment when the producer is faster than the Logger thread
+	private static final double MAX_BYTES = 1.0;
+	
+	@Param({"BLOCK", "EVICT_LOWER"})
+	public String policy;
+	
+	private AsyncLoggerManager manager;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		manager = AsyncLoggerManager.builder()
+				.severity(Severity.INFO)
+				.waitMax(10)
+				.bounded(1 << 14, OverflowPolicy.valueOf(policy))
+				.recycleLogs(true)
+				.waitStrategy(WaitStrategy.park())
+				.sink((logs, size) -> {
+				})
+				.build();
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		manager.kill();
+	}
+	
+	@Benchmark
+	public void message() {
+		manager.logInfo(ManagerState.MESSAGE);
+	}
+	
+	@Benchmark
+	public void primitive() {
+		manager.logInfo("Value {}", 42L);
+	}
+	
+	@Benchmark
+	public void disabled() {
+		manager.logDebug("Value {}", 42L);
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		final Collection<RunResult> results = new Runner(new OptionsBuilder()
+				.include(AllocationBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+		boolean failed = false;
+		for (RunResult result : results) {
+			final Result<?> norm = result.getSecondaryResults().get("gc.alloc.rate.norm");
+			final String name = result.getParams().getBenchmark() + " " + result.getParams().getParam("policy");
+			if (norm == null) {
+				System.err.println(name + ": gc.alloc.rate.norm not measured");
+				failed = true;
+			} else if (norm.getScore() > MAX_BYTES) {
+				System.err.println(name + ": " + norm.getScore() + " bytes/op > " + MAX_BYTES);
+				failed = true;
+			} else {
+				System.out.println(name + ": " + norm.getScore() + " bytes/op");
+			}
+		}
+		if (failed) {
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package Benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+// accepts the usual JMH options, the gc profiler is always added for the allocation rate.
+// Without -t the benchmarks are run with 1, 2, 4 ... producer threads up to the number of processors.
+public class BenchmarkRunner {
+	
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListProfilers() || cmd.shouldListResultFormats()) {
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+		
+		if (cmd.getThreads().hasValue()) {
+			new Runner(new OptionsBuilder().parent(cmd).addProfiler(GCProfiler.class).build()).run();
+			return;
+		}
+		
+		for (int threads = 1; threads <= Runtime.getRuntime().availableProcessors(); threads <<= 1) {
+			new Runner(new OptionsBuilder()
+					.parent(cmd)
+					.threads(threads)
+					.addProfiler(GCProfiler.class)
+					.result("jmh-" + threads + "-threads.json")
+					.resultFormat(ResultFormatType.JSON)
+					.build()).run();
+		}
+	}
+}
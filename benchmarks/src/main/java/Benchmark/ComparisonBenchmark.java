@@ -0,0 +1,258 @@
+package Benchmark;
+
+import AsyncLogger.AppendLogMessage;
+import AsyncLogger.AsyncLoggerManager;
+import AsyncLogger.OverflowPolicy;
+import AsyncLogger.Severity;
+import AsyncLogger.ToLogMessage;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.async.AsyncLogger;
+import org.apache.logging.log4j.core.async.AsyncLoggerContextSelector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// AsyncLoggerManager, with the default unbounded queue and with a bounded one, against the old version and the
+// Apache AsyncLogger that both of them use: an enabled (INFO) and a disabled (TRACE) log of the same message, with a
+// parameter and with a lambda. The old version has only the methods with a String, so it logs the message
+// concatenated by the caller, as its users do.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dlog4j2.configurationFile=log4j2-benchmark.properties"})
+public class ComparisonBenchmark {
+	
+	@Param({"AsyncLoggerManager", "AsyncLoggerManager-bounded", "OldAsyncLoggerManager", "AsyncLogger"})
+	public String logger;
+	
+	private static final ToLogMessage<String> TO_MESSAGE = value -> "Value " + value;
+	private static final AppendLogMessage<String> APPEND_MESSAGE = (builder, value) -> builder.append("Value ")
+			.append(value);
+	
+	private Target target;
+	// not a constant, so the message of the old version is concatenated at each call
+	private String value = "42";
+	
+	// the methods of the logger to measure
+	private interface Target {
+		void info(String s);
+		
+		void trace(String s);
+		
+		void infoParameter(long value);
+		
+		void traceParameter(long value);
+		
+		void infoLambda(String value);
+		
+		void traceLambda(String value);
+		
+		void infoAppend(String value);
+		
+		void traceAppend(String value);
+		
+		void kill();
+	}
+	
+	private static Target target(AsyncLoggerManager manager) {
+		return new Target() {
+			public void info(String s) {
+				manager.logInfo(s);
+			}
+			
+			public void trace(String s) {
+				manager.logTrace(s);
+			}
+			
+			public void infoParameter(long value) {
+				manager.logInfo("Value {}", value);
+			}
+			
+			public void traceParameter(long value) {
+				manager.logTrace("Value {}", value);
+			}
+			
+			public void infoLambda(String value) {
+				manager.logInfo(TO_MESSAGE, value);
+			}
+			
+			public void traceLambda(String value) {
+				manager.logTrace(TO_MESSAGE, value);
+			}
+			
+			public void infoAppend(String value) {
+				manager.logInfo(APPEND_MESSAGE, value);
+			}
+			
+			public void traceAppend(String value) {
+				manager.logTrace(APPEND_MESSAGE, value);
+			}
+			
+			public void kill() {
+				manager.kill();
+			}
+		};
+	}
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		switch (logger) {
+			case "AsyncLoggerManager":
+				target = target(new AsyncLoggerManager(Severity.INFO, 10, false));
+				break;
+			case "AsyncLoggerManager-bounded":
+				target = target(new AsyncLoggerManager(Severity.INFO, 10, false, 1 << 16, OverflowPolicy.BLOCK));
+				break;
+			case "OldAsyncLoggerManager": {
+				OldAsyncLogger.AsyncLoggerManager manager =
+						new OldAsyncLogger.AsyncLoggerManager(OldAsyncLogger.AsyncLoggerManager.Severity.INFO, 10);
+				target = new Target() {
+					public void info(String s) {
+						manager.logInfo(s);
+					}
+					
+					public void trace(String s) {
+						manager.logTrace(s);
+					}
+					
+					public void infoParameter(long value) {
+						manager.logInfo("Value " + value);
+					}
+					
+					public void traceParameter(long value) {
+						manager.logTrace("Value " + value);
+					}
+					
+					public void infoLambda(String value) {
+						manager.logInfo("Value " + value);
+					}
+					
+					public void traceLambda(String value) {
+						manager.logTrace("Value " + value);
+					}
+					
+					public void infoAppend(String value) {
+						manager.logInfo("Value " + value);
+					}
+					
+					public void traceAppend(String value) {
+						manager.logTrace("Value " + value);
+					}
+					
+					public void kill() {
+						manager.kill();
+					}
+				};
+				break;
+			}
+			default: {
+				System.setProperty("Log4jContextSelector", AsyncLoggerContextSelector.class.getName());
+				AsyncLogger asyncLogger = (AsyncLogger) LogManager.getLogger();
+				asyncLogger.setLevel(org.apache.logging.log4j.Level.INFO);
+				target = new Target() {
+					public void info(String s) {
+						asyncLogger.info(s);
+					}
+					
+					public void trace(String s) {
+						asyncLogger.trace(s);
+					}
+					
+					public void infoParameter(long value) {
+						asyncLogger.info("Value {}", value);
+					}
+					
+					public void traceParameter(long value) {
+						asyncLogger.trace("Value {}", value);
+					}
+					
+					public void infoLambda(String value) {
+						asyncLogger.info(() -> "Value " + value);
+					}
+					
+					public void traceLambda(String value) {
+						asyncLogger.trace(() -> "Value " + value);
+					}
+					
+					public void infoAppend(String value) {
+						asyncLogger.info(() -> "Value " + value);
+					}
+					
+					public void traceAppend(String value) {
+						asyncLogger.trace(() -> "Value " + value);
+					}
+					
+					public void kill() {
+					}
+				};
+			}
+		}
+	}
+	
+	// the unbounded queues of the old version need time to be emptied between the iterations
+	@TearDown(Level.Iteration)
+	public void drain() throws InterruptedException {
+		Thread.sleep(500);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		target.kill();
+	}
+	
+	@Benchmark
+	public void info() {
+		target.info(ManagerState.MESSAGE);
+	}
+	
+	@Benchmark
+	public void trace() {
+		target.trace(ManagerState.MESSAGE);
+	}
+	
+	@Benchmark
+	public void infoParameter() {
+		target.infoParameter(42L);
+	}
+	
+	@Benchmark
+	public void traceParameter() {
+		target.traceParameter(42L);
+	}
+	
+	// a ToLogMessage, a Supplier for log4j
+	@Benchmark
+	public void infoLambda() {
+		target.infoLambda(value);
+	}
+	
+	@Benchmark
+	public void traceLambda() {
+		target.traceLambda(value);
+	}
+	
+	// an AppendLogMessage, the other loggers log as in infoLambda
+	@Benchmark
+	public void infoAppend() {
+		target.infoAppend(value);
+	}
+	
+	@Benchmark
+	public void traceAppend() {
+		target.traceAppend(value);
+	}
+}
@@ -0,0 +1,63 @@
+package Benchmark;
+
+import AsyncLogger.AsyncLoggerManager;
+import AsyncLogger.OverflowPolicy;
+import AsyncLogger.Severity;
+import AsyncLogger.WaitStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// cost of adding a log when many threads log together: the shared ring buffer against a buffer for each thread.
+// The full queues discard the new logs, so the producers are measured and not the Logger thread.
+// BenchmarkRunner without -t gives the scaling curve from 1 thread to the number of processors.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Dlog4j2.configurationFile=log4j2-benchmark.properties"})
+public class ContentionBenchmark {
+	
+	@Param({"ring", "striped"})
+	public String queue;
+	
+	private AsyncLoggerManager manager;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		AsyncLoggerManager.Builder builder = AsyncLoggerManager.builder()
+				.severity(Severity.INFO)
+				.waitMax(10)
+				.recycleLogs(true)
+				.waitStrategy(WaitStrategy.park());
+		if (queue.equals("striped")) {
+			builder.striped(1 << 12, OverflowPolicy.DROP);
+		} else {
+			builder.bounded(1 << 16, OverflowPolicy.DROP);
+		}
+		manager = builder.build();
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		manager.kill();
+	}
+	
+	@Benchmark
+	public void logInfo() {
+		manager.logInfo(ManagerState.MESSAGE);
+	}
+}
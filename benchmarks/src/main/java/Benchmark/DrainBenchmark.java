@@ -0,0 +1,53 @@
+package Benchmark;
+
+import AsyncLogger.AsyncLoggerManager;
+import AsyncLogger.OverflowPolicy;
+import AsyncLogger.Severity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// throughput of the Logger thread under a sustained load: the producers wait for a free slot of the bounded queue,
+// so they log only as fast as the Logger thread drains. A batch size of 1 is the drain of one log at a time.
+// The cache misses can be compared with -prof perfnorm.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Dlog4j2.configurationFile=log4j2-benchmark.properties"})
+public class DrainBenchmark {
+	
+	@Param({"1", "16", "256", "4096"})
+	public int batchSize;
+	
+	private AsyncLoggerManager manager;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		manager = new AsyncLoggerManager(Severity.INFO, 1, false, 1 << 14, OverflowPolicy.BLOCK, true);
+		manager.setBatchSize(batchSize);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		manager.kill();
+	}
+	
+	@Benchmark
+	public void sustained() {
+		manager.logInfo(ManagerState.MESSAGE);
+	}
+}
@@ -0,0 +1,70 @@
+package Benchmark;
+
+import AsyncLogger.MessageFormatter;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.message.ReusableMessageFactory;
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// formatting of one message on the Logger thread: the templates parsed once and cached by MessageFormatter,
+// against log4j that parses the message of every event, with its garbage-free messages or with a new String
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Dlog4j2.configurationFile=log4j2-benchmark.properties"})
+public class FormatBenchmark {
+
+	@Param({"1", "3"})
+	public int parameters;
+
+	private String message;
+	private Object[] params;
+	private final StringBuilder builder = new StringBuilder(256);
+
+	@Setup
+	public void setup() {
+		if (parameters == 1) {
+			message = "Request completed for user {} without errors";
+			params = new Object[]{"ciao"};
+		} else {
+			message = "Request {} completed in {} ms for user {} without errors";
+			params = new Object[]{"GET /index.html", 42L, "ciao"};
+		}
+	}
+
+	@Benchmark
+	public StringBuilder cachedTemplate() {
+		builder.setLength(0);
+		MessageFormatter.format(builder, message, params);
+		return builder;
+	}
+
+	@Benchmark
+	public StringBuilder log4jReusable() {
+		builder.setLength(0);
+		final Message reusable = ReusableMessageFactory.INSTANCE.newMessage(message, params);
+		((StringBuilderFormattable) reusable).formatTo(builder);
+		ReusableMessageFactory.release(reusable);
+		return builder;
+	}
+
+	@Benchmark
+	public String log4jString() {
+		return ParameterizedMessage.format(message, params);
+	}
+}
@@ -0,0 +1,44 @@
+package Benchmark;
+
+import AsyncLogger.AsyncLoggerManager;
+import AsyncLogger.OverflowPolicy;
+import AsyncLogger.Severity;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// AsyncLoggerManager shared by all the threads of a benchmark, at INFO severity.
+// The queue is bounded, an unbounded queue grows without limits under a sustained load:
+// it can be measured with -p queue=linked and enough heap.
+@State(Scope.Benchmark)
+public class ManagerState {
+	
+	static final String MESSAGE = "CiaociaociaociaociaociaociaociaoCiaociaociaociaociaociaociaociao";
+	
+	@Param({"ring", "recycled"})
+	public String queue;
+	
+	AsyncLoggerManager manager;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		switch (queue) {
+			case "linked":
+				manager = new AsyncLoggerManager(Severity.INFO, 10, false);
+				break;
+			case "recycled":
+				manager = new AsyncLoggerManager(Severity.INFO, 10, false, 1 << 16, OverflowPolicy.BLOCK, true);
+				break;
+			default:
+				manager = new AsyncLoggerManager(Severity.INFO, 10, false, 1 << 16, OverflowPolicy.BLOCK);
+		}
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		manager.kill();
+	}
+}
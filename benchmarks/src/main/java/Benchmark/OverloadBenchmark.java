@@ -0,0 +1,98 @@
+package Benchmark;
+
+import AsyncLogger.Log;
+import AsyncLogger.Severity;
+import AsyncLogger.ToLog;
+import AsyncLogger.ToLogMessage;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// every family of logX methods, with the severity enabled (INFO) and disabled (TRACE)
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Dlog4j2.configurationFile=log4j2-benchmark.properties"})
+public class OverloadBenchmark {
+	
+	private static final Marker MARKER = MarkerManager.getMarker("BENCHMARK");
+	private static final ToLogMessage<Integer> TO_LOG_MESSAGE = i -> "Value " + i;
+	private static final ToLog<Integer> TO_LOG = i -> Log.newLog(MARKER, "Value {}", i);
+	
+	private final Integer value = 42;
+	private final Object param1 = "param";
+	private final Object param2 = 3.14;
+	private final long primitive1 = 42;
+	
+	@Benchmark
+	public void plainEnabled(ManagerState state) {
+		state.manager.logInfo(ManagerState.MESSAGE);
+	}
+	
+	@Benchmark
+	public void plainDisabled(ManagerState state) {
+		state.manager.logTrace(ManagerState.MESSAGE);
+	}
+	
+	@Benchmark
+	public void varargsEnabled(ManagerState state) {
+		state.manager.logInfo("Message {} {}", param1, param2);
+	}
+	
+	@Benchmark
+	public void varargsDisabled(ManagerState state) {
+		state.manager.logTrace("Message {} {}", param1, param2);
+	}
+	
+	@Benchmark
+	public void primitiveEnabled(ManagerState state) {
+		state.manager.logInfo("Message {}", primitive1);
+	}
+	
+	@Benchmark
+	public void primitiveDisabled(ManagerState state) {
+		state.manager.logTrace("Message {}", primitive1);
+	}
+	
+	@Benchmark
+	public void markerEnabled(ManagerState state) {
+		state.manager.logInfo(MARKER, ManagerState.MESSAGE);
+	}
+	
+	@Benchmark
+	public void markerDisabled(ManagerState state) {
+		state.manager.logTrace(MARKER, ManagerState.MESSAGE);
+	}
+	
+	@Benchmark
+	public void toLogMessageEnabled(ManagerState state) {
+		state.manager.logInfo(TO_LOG_MESSAGE, value);
+	}
+	
+	@Benchmark
+	public void toLogMessageDisabled(ManagerState state) {
+		state.manager.logTrace(TO_LOG_MESSAGE, value);
+	}
+	
+	@Benchmark
+	public void toLogEnabled(ManagerState state) {
+		state.manager.log(TO_LOG, value, Severity.INFO);
+	}
+	
+	@Benchmark
+	public void toLogDisabled(ManagerState state) {
+		state.manager.log(TO_LOG, value, Severity.TRACE);
+	}
+}
@@ -0,0 +1,81 @@
+package Benchmark;
+
+import AsyncLogger.AsyncLoggerManager;
+import AsyncLogger.Log;
+import AsyncLogger.LogSink;
+import AsyncLogger.OverflowPolicy;
+import AsyncLogger.Severity;
+import AsyncLogger.ShardRouting;
+import AsyncLogger.WaitStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// drain throughput with more Logger threads: the producers wait for a free slot of the bounded queues,
+// so they log only as fast as the Logger threads format the logs. Each shard has its own sink,
+// so the shards don't share anything and the throughput should grow with the shards up to the free cores.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Dlog4j2.configurationFile=log4j2-benchmark.properties"})
+public class ShardBenchmark {
+	
+	@Param({"1", "2", "4"})
+	public int shards;
+	
+	private AsyncLoggerManager manager;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		manager = AsyncLoggerManager.builder()
+				.severity(Severity.INFO)
+				.waitMax(10)
+				.bounded(1 << 12, OverflowPolicy.BLOCK)
+				.recycleLogs(true)
+				.waitStrategy(WaitStrategy.park())
+				.sharded(shards, ShardRouting.THREAD, shard -> new FormattingSink())
+				.build();
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		manager.kill();
+	}
+	
+	@Benchmark
+	public void logInfo() {
+		manager.logInfo("Request {} completed in {} ms", ManagerState.MESSAGE, 42L);
+	}
+	
+	// formats every log, as the sinks that write text do
+	private static final class FormattingSink implements LogSink {
+		
+		private final StringBuilder builder = new StringBuilder(256);
+		private long length;
+		
+		@Override
+		public void write(Log[] logs, int size) {
+			for (int i = 0; i < size; i++) {
+				builder.setLength(0);
+				logs[i].formatTo(builder);
+				length += builder.length();
+			}
+		}
+	}
+}
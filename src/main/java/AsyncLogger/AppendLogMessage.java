@@ -0,0 +1,8 @@
+package AsyncLogger;
+
+// a message appended to a buffer instead of returned as a String: the buffer belongs to the log, it is kept until
+// the sink has written the log and then it is reused, so the message allocates neither a builder nor a String
+@FunctionalInterface
+public interface AppendLogMessage<E> {
+	void action(StringBuilder builder, E object);
+}
@@ -6,20 +6,32 @@ import org.apache.logging.log4j.core.async.AsyncLoggerContextSelector;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.Iterator;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
 
 @SuppressWarnings("unused")
 public class AsyncLoggerManager {
-	// Apache AsyncLogger log4j
-	private final org.apache.logging.log4j.core.async.AsyncLogger logger;
-	// Queue that contains all the logs that are ready to log
-	private final ConcurrentLinkedQueue<Log> queue;
+	// queues of the logs with their Logger threads, there is one unless the manager is sharded
+	private final Shard[] shards;
+	// how the logs are assigned to the shards
+	private final ShardRouting routing;
+	// Logger threads that are running, or shards registered in the scheduler
+	private final AtomicInteger running = new AtomicInteger();
+	// threads shared with other managers that drain the shards, null if each shard has its Logger thread
+	private final DrainScheduler scheduler;
+	// pool of reusable logs, null if every log is a new object
+	private final LogPool pool;
 	// int of all the severities
 	static final int trace = Severity.TRACE.ordinal();
 	static final int debug = Severity.DEBUG.ordinal();
@@ -28,19 +40,6 @@ public class AsyncLoggerManager {
 	static final int error = Severity.ERROR.ordinal();
 	static final int fatal = Severity.FATAL.ordinal();
 	static final int noLog = Severity.NO_LOG.ordinal();
-	// static array of functional interface lambdas for logging
-	private static final LogWithSeverity[] toLog = new LogWithSeverity[noLog];
-	
-	// static filling of the array of lambdas
-	static {
-		toLog[trace] = (logger, log) -> logger.trace(log.marker, log.message, log.objects);
-		toLog[debug] = (logger, log) -> logger.debug(log.marker, log.message, log.objects);
-		toLog[info] = (logger, log) -> logger.info(log.marker, log.message, log.objects);
-		toLog[warn] = (logger, log) -> logger.warn(log.marker, log.message, log.objects);
-		toLog[error] = (logger, log) -> logger.error(log.marker, log.message, log.objects);
-		toLog[fatal] = (logger, log) -> logger.fatal(log.marker, log.message, log.objects);
-	}
-	
 	// minimum severity of log to be processed
 	private final AtomicInteger sevMin;
 	// last severity of log set
@@ -49,8 +48,42 @@ public class AsyncLoggerManager {
 	private final long waitMax;
 	// if logging is not critical, you can choose cpuSaving true
 	private final boolean cpuSaving;
+	static final int DEFAULT_BATCH_SIZE = 256;
+	// if the lambdas of the messages are computed by the Logger thread
+	private final boolean deferMessages;
+	// time taken when a log is added
+	private final LogClock clock;
+	// counters of the logs, null if the metrics are disabled
+	private final Metrics metrics;
+	// rate limits by severity and marker, null if there are none. With rate limits the minimum severity is never
+	// raised when the Logger thread can't keep up, the noisy sources are throttled instead.
+	private final RateLimiter limiter;
 	// 'enum' if the AsyncLogger is active, paused or killed
 	private final AtomicInteger status = new AtomicInteger(2);
+	// minimum severity of each category by its id, -1 if the category follows the minimum severity of the manager.
+	// The array is replaced when a category is added or changed, the hot path reads only one element.
+	private volatile int[] categoryLevels = new int[0];
+	// handles of the categories and the severities set for the names, guarded by categories
+	private final Map<String, CategoryLogger> categories = new HashMap<>();
+	private final Map<String, Severity> categorySeverities;
+	// threads waiting in flush(), notified on barrier when the Logger threads have written more logs
+	private final AtomicInteger flushing = new AtomicInteger();
+	// requests of the Logger threads that can't keep up to raise the minimum severity, taken by the Logger thread
+	// of the first shard that raises it once for all the shards
+	private final AtomicInteger overloads = new AtomicInteger();
+	private final Object barrier = new Object();
+	// length of the queue of a shard from which the logs are written to disk, if there is a spill directory
+	private final int spillThreshold;
+	// the log4j configuration created by createLogProperties, stopped when the last Logger thread ends and started
+	// again by restart()
+	private final Log4jConfig ownedLog4j;
+	// bytes of the logs in the queues and their maximum, null without a memory budget
+	private final MemoryBudget budget;
+	// what a log does when the queue or the memory budget is full
+	private final OverflowPolicy policy;
+	// the LogBuilder of each thread that logs with atInfo() and the other methods at..., it refers weakly to the
+	// manager so the threads don't keep it reachable after it has been killed
+	private final ThreadLocal<LogBuilder> builders = ThreadLocal.withInitial(() -> new LogBuilder(this));
 	
 	public AsyncLoggerManager() {
 		this(Severity.INFO, 500, false);
@@ -65,23 +98,460 @@ public class AsyncLoggerManager {
 	}
 	
 	public AsyncLoggerManager(@NotNull Severity sevMin, long waitMax, boolean cpuSaving) {
-		if (waitMax < 1) {
-			throw new IllegalArgumentException("Waiting milliseconds must be > 0");
+		this(builder().severity(sevMin).waitMax(waitMax).cpuSaving(cpuSaving));
+	}
+	
+	// the logs are kept in a bounded ring buffer of the given capacity (rounded up to a power of 2),
+	// the policy decides what happens when it is full
+	public AsyncLoggerManager(@NotNull Severity sevMin, long waitMax, boolean cpuSaving, int capacity,
+	                          @NotNull OverflowPolicy policy) {
+		this(builder().severity(sevMin).waitMax(waitMax).cpuSaving(cpuSaving).bounded(capacity, policy));
+	}
+	
+	// with recycleLogs the logs are taken from a pool and given back after they have been logged,
+	// so the methods that log don't allocate while the pool has free logs
+	public AsyncLoggerManager(@NotNull Severity sevMin, long waitMax, boolean cpuSaving, int capacity,
+	                          @NotNull OverflowPolicy policy, boolean recycleLogs) {
+		this(builder().severity(sevMin).waitMax(waitMax).cpuSaving(cpuSaving).bounded(capacity, policy)
+				.recycleLogs(recycleLogs));
+	}
+	
+	private AsyncLoggerManager(@NotNull Builder builder) {
+		if (builder.recycleLogs && builder.capacity < 1) {
+			throw new IllegalArgumentException("Logs can be recycled only with a bounded queue");
 		}
 		// waitMax is calculated with a certain margin
-		this.waitMax = waitMax - ((waitMax + 118) >> 7);
+		this.waitMax = builder.waitMax - ((builder.waitMax + 118) >> 7);
 		// save cpu
-		this.cpuSaving = cpuSaving;
+		this.cpuSaving = builder.cpuSaving;
 		// minimum severity
-		this.sevMin = new AtomicInteger(sevMin.ordinal());
-		this.lastSet = new AtomicInteger(sevMin.ordinal());
-		// new queue
-		this.queue = new ConcurrentLinkedQueue<>();
-		// thread that logs
-		new AsyncLoggerManager.Logger().start();
-		// new Apache AsyncLogger
-		System.setProperty("Log4jContextSelector", AsyncLoggerContextSelector.class.getName());
-		this.logger = (org.apache.logging.log4j.core.async.AsyncLogger) LogManager.getLogger();
+		this.sevMin = new AtomicInteger(builder.severity.ordinal());
+		this.lastSet = new AtomicInteger(builder.severity.ordinal());
+		// the queue is read by the metrics only after the construction
+		this.budget = builder.memoryBudget > 0 ? new MemoryBudget(builder.memoryBudget) : null;
+		this.policy = builder.policy;
+		this.metrics = builder.metrics ? new Metrics(this::queueSize, this::getRetainedBytes, sevMin, lastSet, status,
+				builder.jmxName) : null;
+		// pool of the logs of all the queues
+		this.pool = builder.recycleLogs ? new LogPool((int) Math.min((long) builder.capacity * builder.shards << 1,
+				1 << 30)) : null;
+		this.limiter = builder.rateLimits.isEmpty() ? null : new RateLimiter(builder.rateLimits,
+				builder.rateLimitSummary);
+		this.deferMessages = builder.deferMessages;
+		this.clock = builder.clock;
+		this.categorySeverities = new HashMap<>(builder.categories);
+		this.spillThreshold = builder.spillThreshold;
+		this.ownedLog4j = builder.ownsLog4j ? builder.log4j : null;
+		org.apache.logging.log4j.core.async.AsyncLogger logger = null;
+		if (builder.sink == null && builder.sinks == null) {
+			if (builder.log4j != null) {
+				// Apache AsyncLogger of a context configured in memory
+				logger = builder.log4j.logger();
+			} else {
+				// new Apache AsyncLogger
+				System.setProperty("Log4jContextSelector", AsyncLoggerContextSelector.class.getName());
+				logger = (org.apache.logging.log4j.core.async.AsyncLogger) LogManager.getLogger();
+			}
+		}
+		this.routing = builder.routing;
+		this.scheduler = builder.scheduler;
+		this.shards = new Shard[builder.shards];
+		final WaitStrategy waitStrategy = builder.waitStrategy != null ? builder.waitStrategy : WaitStrategy.sleep();
+		if (builder.laneBudget >= 0 && builder.striped) {
+			throw new IllegalArgumentException("Priority lanes can't be striped");
+		}
+		// the sequence of the logs of all the lanes of all the shards
+		final AtomicLong sequence = new AtomicLong();
+		for (int i = 0; i < shards.length; i++) {
+			final LogQueue queue;
+			if (builder.laneBudget >= 0) {
+				final LogQueue[] lanes = new LogQueue[noLog];
+				for (int j = 0; j < lanes.length; j++) {
+					lanes[j] = queue(builder);
+				}
+				queue = new LaneLogQueue(lanes, sequence, TimeUnit.MILLISECONDS.toNanos(builder.laneBudget));
+			} else {
+				queue = queue(builder);
+			}
+			final LogSink sink;
+			if (builder.sinks != null) {
+				sink = Objects.requireNonNull(builder.sinks.apply(i), "Sink of shard " + i);
+			} else if (builder.sink != null) {
+				sink = builder.sink;
+			} else {
+				sink = new Log4jSink(logger);
+			}
+			LogSpill spill = null;
+			if (builder.spillDirectory != null) {
+				try {
+					spill = new LogSpill(new File(builder.spillDirectory), i);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			shards[i] = new Shard(queue, new Settings(i == 0 ? waitStrategy : waitStrategy.copy(), sink,
+					builder.batchSize), spill);
+		}
+		// the MXBean is published by the thread that creates the manager, it can take a while the first time
+		if (metrics != null) {
+			metrics.register();
+		}
+		// threads that log, started when everything they use is ready
+		startLoggers();
+		if (builder.shutdownTimeout >= 0) {
+			final long timeout = builder.shutdownTimeout;
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				kill();
+				awaitTermination(timeout, TimeUnit.MILLISECONDS);
+			}, "AsyncLogger-shutdown"));
+		}
+	}
+	
+	private LogQueue queue(Builder builder) {
+		if (builder.capacity < 1) {
+			return new LinkedLogQueue();
+		} else if (builder.striped) {
+			return new StripedLogQueue(builder.capacity, builder.policy);
+		}
+		return new RingLogQueue(builder.capacity, builder.policy, pool, metrics, budget);
+	}
+	
+	// how the Logger thread of a shard waits, where it writes the logs and how many it takes together.
+	// They are replaced all together by reconfigure(), the Logger thread takes the new ones between two batches.
+	private static final class Settings {
+		
+		final WaitStrategy waitStrategy;
+		final LogSink sink;
+		final int batchSize;
+		
+		Settings(WaitStrategy waitStrategy, LogSink sink, int batchSize) {
+			this.waitStrategy = waitStrategy;
+			this.sink = sink;
+			this.batchSize = batchSize;
+		}
+	}
+	
+	// a queue with the Logger thread that drains it and its settings
+	private static final class Shard {
+		
+		final LogQueue queue;
+		// the last settings given and the ones used now by the Logger thread
+		volatile Settings settings;
+		volatile Settings applied;
+		// overflow of the queue on disk, null if the logs never leave the memory
+		final LogSpill spill;
+		// logs added to the queue and logs taken from it, flush() waits until the second reaches the first
+		final LongAdder published = new LongAdder();
+		// written by the thread that drains the shard
+		volatile long consumed;
+		// if the Logger thread of the shard can't keep up, written only by it
+		volatile boolean overloaded;
+		// logs added since the workers of the DrainScheduler last drained the shard, only with a scheduler
+		final AtomicInteger pending = new AtomicInteger();
+		
+		Shard(LogQueue queue, Settings settings, LogSpill spill) {
+			this.queue = queue;
+			this.settings = settings;
+			this.applied = settings;
+			this.spill = spill;
+		}
+		
+		// logs in the queue and in the batch written now, without walking a linked queue
+		long backlog() {
+			return published.sum() - consumed - queue.evicted();
+		}
+	}
+	
+	private void startLoggers() {
+		running.set(shards.length);
+		for (int i = 0; i < shards.length; i++) {
+			if (scheduler != null) {
+				scheduler.register(new ScheduledLogger(shards[i], i == 0));
+			} else {
+				new AsyncLoggerManager.Logger(shards[i], i == 0).start();
+			}
+		}
+	}
+	
+	// the shard of a log: the same marker or the same thread always go to the same shard
+	private Shard shard(Log log) {
+		if (shards.length == 1) {
+			return shards[0];
+		}
+		final int hash = routing == ShardRouting.MARKER && log.marker != null ? log.marker.getName().hashCode() :
+				(int) Thread.currentThread().getId();
+		return shards[(hash & Integer.MAX_VALUE) % shards.length];
+	}
+	
+	@NotNull
+	@Contract(" -> new")
+	public static Builder builder() {
+		return new Builder();
+	}
+	
+	// settings of a new AsyncLoggerManager, the defaults are the same of new AsyncLoggerManager()
+	public static class Builder {
+		
+		private Severity severity = Severity.INFO;
+		private long waitMax = 500;
+		private boolean cpuSaving = false;
+		private int capacity = 0;
+		private OverflowPolicy policy = OverflowPolicy.BLOCK;
+		private boolean striped = false;
+		private boolean recycleLogs = false;
+		private int batchSize = DEFAULT_BATCH_SIZE;
+		private WaitStrategy waitStrategy = null;
+		private boolean deferMessages = false;
+		private LogClock clock = LogClock.PRECISE;
+		private LogSink sink = null;
+		private Log4jConfig log4j = null;
+		private boolean ownsLog4j = false;
+		private boolean metrics = false;
+		private String jmxName = null;
+		private int shards = 1;
+		private ShardRouting routing = ShardRouting.THREAD;
+		private IntFunction<LogSink> sinks = null;
+		private DrainScheduler scheduler = null;
+		private final Map<Object, long[]> rateLimits = new LinkedHashMap<>();
+		private long rateLimitSummary = 10_000;
+		private final Map<String, Severity> categories = new HashMap<>();
+		private long laneBudget = -1;
+		private long shutdownTimeout = -1;
+		private String spillDirectory = null;
+		private int spillThreshold = 0;
+		private long memoryBudget = 0;
+		
+		private Builder() {
+		}
+		
+		// minimum severity of the logs
+		public Builder severity(@NotNull Severity severity) {
+			this.severity = severity;
+			return this;
+		}
+		
+		// maximum milliseconds that a log can wait in the queue
+		public Builder waitMax(long waitMax) {
+			if (waitMax < 1) {
+				throw new IllegalArgumentException("Waiting milliseconds must be > 0");
+			}
+			this.waitMax = waitMax;
+			return this;
+		}
+		
+		// if the Logger thread can't keep up, the minimum severity is raised instead of draining without pauses
+		public Builder cpuSaving(boolean cpuSaving) {
+			this.cpuSaving = cpuSaving;
+			return this;
+		}
+		
+		// bounded ring buffer of the given capacity (rounded up to a power of 2) instead of an unbounded queue
+		public Builder bounded(int capacity, @NotNull OverflowPolicy policy) {
+			if (capacity < 2 || capacity > 1 << 30) {
+				throw new IllegalArgumentException("Capacity must be >= 2 and <= " + (1 << 30));
+			}
+			this.capacity = capacity;
+			this.policy = policy;
+			this.striped = false;
+			return this;
+		}
+		
+		// a bounded buffer of the given capacity for each thread that logs, so the threads don't compete
+		// to add their logs. The Logger thread merges the buffers in the order in which the logs were added.
+		// With EVICT_LOWER a full buffer discards the new log.
+		public Builder striped(int capacityPerThread, @NotNull OverflowPolicy policy) {
+			bounded(capacityPerThread, policy);
+			this.striped = true;
+			return this;
+		}
+		
+		// maximum bytes retained by the logs in the queues, estimated when each log is added. When it is reached
+		// the policy of the queue applies: BLOCK waits for the Logger thread, DROP and EVICT_LOWER discard the new log.
+		// Without bounded or striped the policy is BLOCK.
+		public Builder memoryBudget(long bytes) {
+			if (bytes < 1) {
+				throw new IllegalArgumentException("Memory budget must be > 0");
+			}
+			this.memoryBudget = bytes;
+			return this;
+		}
+		
+		// when a queue has threshold logs the new logs are written to segments in the directory, and the Logger
+		// thread reads them back in order when it has caught up. The segments left by a crash are logged first.
+		// Each manager needs its own directory.
+		public Builder spill(@NotNull String directory, int threshold) {
+			if (threshold < 1) {
+				throw new IllegalArgumentException("Spill threshold must be > 0");
+			}
+			this.spillDirectory = directory;
+			this.spillThreshold = threshold;
+			return this;
+		}
+		
+		// when the JVM exits the manager is killed and the exit waits at most timeoutMillis for its last logs
+		public Builder shutdownHook(long timeoutMillis) {
+			if (timeoutMillis < 0) {
+				throw new IllegalArgumentException("Shutdown timeout must be >= 0");
+			}
+			this.shutdownTimeout = timeoutMillis;
+			return this;
+		}
+		
+		// a queue for each severity, the Logger thread drains the higher severities first and a lower one waits
+		// at most budgetMillis behind them. Each lane has the capacity of the queue and with EVICT_LOWER a full lane
+		// discards the new log. Log.getSequence() gives the order in which the logs were added.
+		public Builder lanes(long budgetMillis) {
+			if (budgetMillis < 0) {
+				throw new IllegalArgumentException("Lane budget must be >= 0");
+			}
+			this.laneBudget = budgetMillis;
+			return this;
+		}
+		
+		// logs taken from a pool and given back after they have been logged, it needs a bounded or striped queue
+		public Builder recycleLogs(boolean recycleLogs) {
+			this.recycleLogs = recycleLogs;
+			return this;
+		}
+		
+		// maximum number of logs taken from the queue and written together
+		public Builder batchSize(int batchSize) {
+			if (batchSize < 1) {
+				throw new IllegalArgumentException("Batch size must be > 0");
+			}
+			this.batchSize = batchSize;
+			return this;
+		}
+		
+		// how the Logger thread waits for new logs, WaitStrategy.sleep() by default.
+		// With more shards every Logger thread has a copy of it.
+		public Builder waitStrategy(@NotNull WaitStrategy waitStrategy) {
+			this.waitStrategy = waitStrategy;
+			return this;
+		}
+		
+		// the ToLogMessage lambdas are computed by the Logger thread instead of the thread that logs,
+		// so the object must not change after the call (see the methods with a Snapshot)
+		public Builder deferMessages(boolean deferMessages) {
+			this.deferMessages = deferMessages;
+			return this;
+		}
+		
+		// how the time of a log is taken when it is added, LogClock.PRECISE by default
+		public Builder clock(@NotNull LogClock clock) {
+			this.clock = clock;
+			return this;
+		}
+		
+		// with true the Apache AsyncLogger writes the time taken when the log was added instead of the time of the
+		// writing: it sets the JVM-wide property log4j.Clock to Log4jEventClock, if it has no value, so it must be
+		// called before log4j is initialized (before the first LogManager.getLogger() or manager with log4j).
+		// False by default, the other sinks always write the time of the clock
+		public Builder log4jClock(boolean log4jClock) {
+			if (log4jClock) {
+				Log4jEventClock.install();
+			}
+			return this;
+		}
+		
+		// where the Logger thread writes the logs, an Apache AsyncLogger by default.
+		// With a different sink log4j is not initialized.
+		public Builder sink(@NotNull LogSink sink) {
+			this.sink = sink;
+			return this;
+		}
+		
+		// the logs are given to the root logger of an AsyncLoggerContext configured in memory,
+		// without the log4j2.properties of the classpath and the global Log4jContextSelector
+		public Builder log4j(@NotNull Log4jConfig log4j) {
+			this.log4j = log4j;
+			return this;
+		}
+		
+		// at most perSecond logs of the severity, with bursts of burst logs. The other logs are discarded and
+		// the Logger thread writes how many they are. With a rate limit the minimum severity is never raised.
+		public Builder rateLimit(@NotNull Severity severity, long perSecond, long burst) {
+			if (severity == Severity.NO_LOG) {
+				throw new IllegalArgumentException("Severity must be less than NO_LOG");
+			}
+			return rateLimit((Object) severity, perSecond, burst);
+		}
+		
+		// at most perSecond logs with the marker, with bursts of burst logs. A log with a marker must respect
+		// the limit of its marker and the limit of its severity.
+		public Builder rateLimit(@NotNull Marker marker, long perSecond, long burst) {
+			return rateLimit((Object) marker, perSecond, burst);
+		}
+		
+		private Builder rateLimit(Object key, long perSecond, long burst) {
+			if (perSecond < 1 || burst < 1) {
+				throw new IllegalArgumentException("Logs per second and burst must be > 0");
+			}
+			rateLimits.put(key, new long[]{perSecond, burst});
+			return this;
+		}
+		
+		// milliseconds between two summaries of the logs discarded by the rate limits, 10 seconds by default
+		public Builder rateLimitSummary(long millis) {
+			if (millis < 1) {
+				throw new IllegalArgumentException("Milliseconds must be > 0");
+			}
+			this.rateLimitSummary = millis;
+			return this;
+		}
+		
+		// shards Logger threads, each with its own queue (of the capacity given for the queue), wait strategy and
+		// sink. The logs are assigned to a shard by routing and their order is kept only within a shard.
+		// The sink set with sink(LogSink) is shared by all the shards, so it must be thread-safe.
+		public Builder sharded(int shards, @NotNull ShardRouting routing) {
+			if (shards < 1) {
+				throw new IllegalArgumentException("Shards must be > 0");
+			}
+			this.shards = shards;
+			this.routing = routing;
+			return this;
+		}
+		
+		// as sharded(int, ShardRouting), with the sink of each shard given by sinks
+		public Builder sharded(int shards, @NotNull ShardRouting routing, @NotNull IntFunction<LogSink> sinks) {
+			sharded(shards, routing);
+			this.sinks = sinks;
+			return this;
+		}
+		
+		// minimum severity of a category and of the categories under it, "com.acme" is the parent of "com.acme.payments"
+		public Builder category(@NotNull String name, @NotNull Severity severity) {
+			this.categories.put(name, severity);
+			return this;
+		}
+		
+		// the logs are written by the threads of the scheduler, shared with other managers, instead of a Logger
+		// thread for each shard. waitMax is the latency target: a shard is drained when it has a full batch or when
+		// its logs have waited waitMax milliseconds. The wait strategy and cpuSaving are not used.
+		public Builder scheduler(@NotNull DrainScheduler scheduler) {
+			this.scheduler = scheduler;
+			return this;
+		}
+		
+		// count the logs added, discarded and written, see AsyncLoggerManager.getMetrics()
+		public Builder metrics() {
+			this.metrics = true;
+			return this;
+		}
+		
+		// count the logs and publish the counters with JMX as AsyncLogger:type=AsyncLoggerManager,name="jmxName"
+		// while the Logger thread runs
+		public Builder metrics(@NotNull String jmxName) {
+			this.metrics = true;
+			this.jmxName = jmxName;
+			return this;
+		}
+		
+		@NotNull
+		@Contract(" -> new")
+		public AsyncLoggerManager build() {
+			return new AsyncLoggerManager(this);
+		}
 	}
 	
 	// if the log are on console or on file
@@ -89,56 +559,49 @@ public class AsyncLoggerManager {
 		Console, RandomAccessFile
 	}
 	
-	// create the logging properties to log both console and file and a AsyncLogger
+	// create a log4j configuration in memory to log both console and file and a AsyncLogger.
+	// Nothing is written on the classpath, IOException is kept for the callers that catch it.
+	// The log4j context belongs to the manager: it is stopped, and its files closed, when the manager is dead
 	@NotNull
 	@Contract("_, _, _, _, _, _, _, _ -> new")
 	public static AsyncLoggerManager createLogProperties(@NotNull Severity rootSeverity, String nameLoggerConsole,
 	                                                     String patternLoggerConsole, String nameLoggerFile,
 	                                                     String patternLoggerFile, @NotNull String fileName,
 	                                                     long waitMax, boolean cpuSaving) throws IOException {
-		String t1 = "Console", t2 = "RandomAccessFile";
-		String file = "rootLogger.level = " + rootSeverity.toString() + "\n" + "rootLogger.appenderRefs = " +
-				t1 + "," + t2 + "\nrootLogger.appenderRef." + t1 + ".ref = " + nameLoggerConsole +
-				"\nrootLogger.appenderRef." + t2 + ".ref = " + nameLoggerFile + "\n\nappenders = " + t1 + "," + t2 +
-				"\n\nappender." + t1 + ".type = " + t1 + "\nappender." + t1 + ".name = " + nameLoggerConsole +
-				"\nappender." + t1 + ".layout.type = PatternLayout\nappender." + t1 + ".layout.pattern = " +
-				patternLoggerConsole + "\n\nappender." + t2 + ".type = " + t2 + "\nappender." + t2 + ".name = " +
-				nameLoggerFile + "\nappender." + t2 + ".layout.type = PatternLayout\nappender." + t2 +
-				".layout.pattern = " + patternLoggerFile + "\nappender." + t2 + ".fileName = " + fileName;
-		String path = Objects.requireNonNull(AsyncLoggerManager.class.getClassLoader().getResource("")).getPath();
-		path = path.startsWith("/C:/") ? path.substring(1) : path;
-		Files.write(Paths.get(path + "log4j2.properties"), file.getBytes());
-		
-		return new AsyncLoggerManager(rootSeverity, waitMax, cpuSaving);
-	}
-	
-	// create the logging properties to log both console or file and a AsyncLogger
+		final Log4jConfig log4j = Log4jConfig.builder(nameLoggerConsole + "-" + nameLoggerFile)
+				.severity(rootSeverity)
+				.console(nameLoggerConsole, patternLoggerConsole)
+				.randomAccessFile(nameLoggerFile, fileName, patternLoggerFile)
+				.build();
+		return owning(log4j, builder().severity(rootSeverity).waitMax(waitMax).cpuSaving(cpuSaving));
+	}
+	
+	// create a log4j configuration in memory to log both console or file and a AsyncLogger
 	@NotNull
 	public static AsyncLoggerManager createLogProperties(LoggerType type, String name, String pattern,
 	                                                     Severity rootSeverity, long waitMax) throws IOException {
 		return createLogProperties(type, name, pattern, rootSeverity, "logs.log", waitMax, false);
 	}
 	
-	// create the logging properties to log both console or file and a AsyncLogger
+	// create a log4j configuration in memory to log both console or file and a AsyncLogger
 	@NotNull
 	@Contract("_, _, _, _, _, _, _ -> new")
 	public static AsyncLoggerManager createLogProperties(@NotNull LoggerType type, String name, String pattern,
 	                                                     @NotNull Severity rootSeverity, @NotNull String fileName,
 	                                                     long waitMax, boolean cpuSaving) throws IOException {
-		String t = type.toString(), rowFile;
+		final Log4jConfig.Builder log4j = Log4jConfig.builder(name).severity(rootSeverity);
 		if (type == LoggerType.RandomAccessFile) {
-			rowFile = "\nappender." + t + ".fileName = " + fileName;
+			log4j.randomAccessFile(name, fileName, pattern);
 		} else {
-			rowFile = "\n";
+			log4j.console(name, pattern);
 		}
-		String file = "rootLogger.level = " + rootSeverity.toString() + "\n" + "rootLogger.appenderRefs = " +
-				t + "\nrootLogger.appenderRef." + t + ".ref = " + name + "\n\nappenders = " + t + "\n\nappender." + t +
-				".type = " + t + "\nappender." + t + ".name = " + name + "\nappender." + t +
-				".layout.type = PatternLayout\nappender." + t + ".layout.pattern = " + pattern + rowFile;
-		String path = Objects.requireNonNull(AsyncLoggerManager.class.getClassLoader().getResource("")).getPath();
-		path = path.startsWith("/C:/") ? path.substring(1) : path;
-		Files.write(Paths.get(path + "log4j2.properties"), file.getBytes());
-		return new AsyncLoggerManager(rootSeverity, waitMax, cpuSaving);
+		return owning(log4j.build(), builder().severity(rootSeverity).waitMax(waitMax).cpuSaving(cpuSaving));
+	}
+	
+	// the context of the configuration is used only by this manager, so it is stopped with it
+	private static AsyncLoggerManager owning(Log4jConfig log4j, Builder builder) {
+		builder.log4j(log4j).ownsLog4j = true;
+		return new AsyncLoggerManager(builder);
 	}
 	
 	// set the minimum severity
@@ -151,437 +614,1288 @@ public class AsyncLoggerManager {
 		}
 	}
 	
-	// log the last logs and kill the AsyncLogger
-	public void kill() {
-		synchronized (status) {
-			status.set(0);
-			sevMin.set(noLog);
-			lastSet.set(noLog);
-			status.notify();
+	// the handle of a category, its minimum severity is the one set for its name or for its nearest parent.
+	// A category without a severity follows the minimum severity of the manager.
+	@NotNull
+	public CategoryLogger category(@NotNull String name) {
+		synchronized (categories) {
+			CategoryLogger category = categories.get(name);
+			if (category == null) {
+				category = new CategoryLogger(this, name, categories.size());
+				categories.put(name, category);
+				resolveCategories();
+			}
+			return category;
+		}
+	}
+	
+	// set the minimum severity of a category and of the categories under it that have no severity of their own,
+	// null to follow the parent again
+	public void setCategorySeverity(@NotNull String name, Severity severity) {
+		synchronized (categories) {
+			if (severity != null) {
+				categorySeverities.put(name, severity);
+			} else {
+				categorySeverities.remove(name);
+			}
+			resolveCategories();
+		}
+	}
+	
+	// the inherited severities are resolved here, never when a log is added
+	private void resolveCategories() {
+		final int[] levels = new int[categories.size()];
+		for (CategoryLogger category : categories.values()) {
+			levels[category.id] = resolve(category.name);
+		}
+		categoryLevels = levels;
+	}
+	
+	private int resolve(String name) {
+		for (String parent = name; ; ) {
+			final Severity severity = categorySeverities.get(parent);
+			if (severity != null) {
+				return severity.ordinal();
+			}
+			final int dot = parent.lastIndexOf('.');
+			if (dot < 0) {
+				return -1;
+			}
+			parent = parent.substring(0, dot);
+		}
+	}
+	
+	// set how many logs the Logger thread takes from the queue and writes together
+	public void setBatchSize(int batchSize) {
+		reconfigure().batchSize(batchSize).apply();
+	}
+	
+	// new settings for the running manager: the Logger threads take them between two batches, they are not
+	// restarted and the logs in the queues are not discarded
+	@NotNull
+	@Contract(" -> new")
+	public Reconfiguration reconfigure() {
+		return new Reconfiguration();
+	}
+	
+	// the settings that are changed, the others stay as they are
+	public final class Reconfiguration {
+		
+		private Severity severity = null;
+		private WaitStrategy waitStrategy = null;
+		private int batchSize = 0;
+		private LogSink sink = null;
+		private IntFunction<LogSink> sinks = null;
+		
+		private Reconfiguration() {
+		}
+		
+		// minimum severity, as setSeverityMin(Severity)
+		public Reconfiguration severity(@NotNull Severity severity) {
+			this.severity = severity;
+			return this;
+		}
+		
+		// with more shards every Logger thread has a copy of it. It is not used with a DrainScheduler.
+		public Reconfiguration waitStrategy(@NotNull WaitStrategy waitStrategy) {
+			this.waitStrategy = waitStrategy;
+			return this;
+		}
+		
+		public Reconfiguration batchSize(int batchSize) {
+			if (batchSize < 1) {
+				throw new IllegalArgumentException("Batch size must be > 0");
+			}
+			this.batchSize = batchSize;
+			return this;
+		}
+		
+		// the sink of all the shards, so it must be thread-safe if there are more of them
+		public Reconfiguration sink(@NotNull LogSink sink) {
+			this.sink = sink;
+			this.sinks = null;
+			return this;
+		}
+		
+		// the sink of each shard
+		public Reconfiguration sinks(@NotNull IntFunction<LogSink> sinks) {
+			this.sinks = sinks;
+			this.sink = null;
+			return this;
+		}
+		
+		// give the settings to the Logger threads without waiting for them
+		public void apply() {
+			publish();
+		}
+		
+		// give the settings to the Logger threads and wait until all of them use them, so the old sinks
+		// are not written any more and can be closed. It returns false if the timeout has elapsed first or the
+		// thread has been interrupted. A paused manager takes them when it goes on.
+		public boolean apply(long timeout, @NotNull TimeUnit unit) {
+			final Settings[] published = publish();
+			final long deadline = System.nanoTime() + unit.toNanos(timeout);
+			try {
+				synchronized (barrier) {
+					while (!applied(published)) {
+						final long remaining = deadline - System.nanoTime();
+						if (remaining <= 0) {
+							return false;
+						}
+						TimeUnit.NANOSECONDS.timedWait(barrier, remaining);
+					}
+				}
+				return true;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		
+		// the new settings of the shards are published all together, a reconfiguration at a time
+		private Settings[] publish() {
+			final Settings[] published = new Settings[shards.length];
+			synchronized (shards) {
+				for (int i = 0; i < shards.length; i++) {
+					final Shard shard = shards[i];
+					final Settings old = shard.settings;
+					final LogSink sink = sinks != null ? Objects.requireNonNull(sinks.apply(i), "Sink of shard " + i)
+							: this.sink != null ? this.sink : old.sink;
+					published[i] = new Settings(waitStrategy == null ? old.waitStrategy : i == 0 ? waitStrategy :
+							waitStrategy.copy(), sink, batchSize > 0 ? batchSize : old.batchSize);
+					shard.settings = published[i];
+					// the Logger thread can be waiting with the old strategy
+					old.waitStrategy.wake();
+				}
+			}
+			if (severity != null) {
+				setSeverityMin(severity);
+			}
+			if (scheduler != null) {
+				scheduler.wakeUp();
+			}
+			return published;
+		}
+		
+		// a dead manager has no Logger threads that could use the old settings
+		private boolean applied(Settings[] published) {
+			if (status.get() == -1) {
+				return true;
+			}
+			for (int i = 0; i < shards.length; i++) {
+				if (shards[i].applied != published[i] && shards[i].settings == published[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+	
+	// log the last logs and kill the AsyncLogger
+	public void kill() {
+		synchronized (status) {
+			// the Logger threads are already ending
+			if (status.get() < 1) {
+				return;
+			}
+			status.set(0);
+			sevMin.set(noLog);
+			lastSet.set(noLog);
+			status.notifyAll();
+			for (Shard shard : shards) {
+				shard.settings.waitStrategy.wake();
+			}
+			if (scheduler != null) {
+				scheduler.wakeUp();
+			}
+		}
+	}
+	
+	// wait until the logs added before the call have been written to the sinks, false if the timeout has elapsed
+	// first or the thread has been interrupted. A paused manager writes no logs, so it waits for go().
+	public boolean flush(long timeout, @NotNull TimeUnit unit) {
+		final long[] targets = new long[shards.length];
+		for (int i = 0; i < shards.length; i++) {
+			targets[i] = shards[i].published.sum();
+		}
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		flushing.incrementAndGet();
+		try {
+			for (Shard shard : shards) {
+				shard.settings.waitStrategy.wake();
+			}
+			if (scheduler != null) {
+				scheduler.wakeUp();
+			}
+			synchronized (barrier) {
+				while (!flushed(targets)) {
+					final long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						return false;
+					}
+					TimeUnit.NANOSECONDS.timedWait(barrier, remaining);
+				}
+			}
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} finally {
+			flushing.decrementAndGet();
+		}
+	}
+	
+	// a dead manager has written all its logs
+	private boolean flushed(long[] targets) {
+		if (status.get() == -1) {
+			return true;
+		}
+		for (int i = 0; i < shards.length; i++) {
+			if (shards[i].consumed + shards[i].queue.evicted() < targets[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	// wait until the Logger threads of a killed manager have written the last logs, false if the timeout
+	// has elapsed first or the thread has been interrupted
+	public boolean awaitTermination(long timeout, @NotNull TimeUnit unit) {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		synchronized (status) {
+			while (status.get() != -1) {
+				final long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					return false;
+				}
+				try {
+					TimeUnit.NANOSECONDS.timedWait(status, remaining);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+	
+	// pause logging, to use when you want save CPU
+	public void pause() {
+		if (status.get() < 1) {
+			throw new IllegalStateException("Logger is already killed");
+		}
+		sevMin.set(noLog);
+		status.set(1);
+	}
+	
+	// restart logging
+	public void go() {
+		if (status.get() < 1) {
+			throw new IllegalStateException("Logger is already killed");
+		}
+		synchronized (status) {
+			sevMin.compareAndSet(noLog, lastSet.get());
+			status.compareAndSet(1, 2);
+			status.notifyAll();
+		}
+	}
+	
+	// restart thread and logging, after killed too.
+	// WARNING: it is not efficient if the thread is already killed, reconfigure() changes the settings
+	// of a running manager without new threads
+	public void restart(@NotNull Severity newSeverity) {
+		synchronized (status) {
+			sevMin.compareAndSet(noLog, newSeverity.ordinal());
+			lastSet.set(newSeverity.ordinal());
+			
+			if (status.get() < 1) {
+				// the Logger threads are logging the last logs
+				while (status.get() == 0) {
+					try {
+						status.wait();
+					} catch (InterruptedException e) {
+						e.printStackTrace();
+						break;
+					}
+				}
+				if (metrics != null) {
+					metrics.register();
+				}
+				if (ownedLog4j != null) {
+					restartLog4j();
+				}
+				// the new Logger threads must not see the manager still dead
+				status.set(2);
+				startLoggers();
+			}
+			
+			if (status.get() < 2) {
+				status.set(2);
+				status.notifyAll();
+			}
+		}
+	}
+	
+	// the context created by createLogProperties was stopped with the last Logger thread, the shards that write to it
+	// take the logger of a new one
+	private void restartLog4j() {
+		final org.apache.logging.log4j.core.async.AsyncLogger logger = ownedLog4j.logger();
+		for (Shard shard : shards) {
+			final Settings settings = shard.settings;
+			if (settings.sink instanceof Log4jSink) {
+				shard.settings = new Settings(settings.waitStrategy, new Log4jSink(logger), settings.batchSize);
+				shard.applied = shard.settings;
+			}
+		}
+	}
+	
+	// the metrics now, it throws IllegalStateException if they have not been enabled with the builder
+	@NotNull
+	public MetricsSnapshot getMetrics() {
+		if (metrics == null) {
+			throw new IllegalStateException("Metrics are not enabled");
+		}
+		return metrics.snapshot();
+	}
+	
+	// estimated bytes of the logs in the queues, 0 without a memory budget
+	public long getRetainedBytes() {
+		return budget != null ? budget.used() : 0;
+	}
+	
+	private int queueSize() {
+		int size = 0;
+		for (Shard shard : shards) {
+			size += shard.queue.size();
+		}
+		return size;
+	}
+	
+	// if the logs of the severity are processed, the others are counted by the metrics
+	boolean enabled(int severity) {
+		if (sevMin.get() <= severity) {
+			return true;
+		}
+		if (metrics != null) {
+			metrics.discarded(severity);
+		}
+		return false;
+	}
+	
+	// if the logs of the severity are processed in a category, level is its minimum severity or -1.
+	// The minimum severity of the manager still applies when it is raised above the one set, paused or killed.
+	boolean accepts(int severity, int level) {
+		if (level < 0) {
+			return sevMin.get() <= severity;
+		}
+		if (level > severity) {
+			return false;
+		}
+		final int min = sevMin.get();
+		return min <= severity || min == lastSet.get() && min != noLog;
+	}
+	
+	boolean enabled(int severity, int level) {
+		if (accepts(severity, level)) {
+			return true;
+		}
+		if (metrics != null) {
+			metrics.discarded(severity);
+		}
+		return false;
+	}
+	
+	int categoryLevel(int id) {
+		return categoryLevels[id];
+	}
+	
+	// a log of the pool if there is one free, a new log otherwise
+	private Log obtain(String message, int severity) {
+		return obtain(null, message, severity, null);
+	}
+	
+	private Log obtain(String message, int severity, Object[] objects) {
+		return obtain(null, message, severity, objects);
+	}
+	
+	private Log obtain(Marker marker, String message, int severity) {
+		return obtain(marker, message, severity, null);
+	}
+	
+	Log obtain(Marker marker, String message, int severity, Object[] objects) {
+		if (pool != null) {
+			final Log log = pool.take();
+			if (log != null) {
+				return log.set(marker, message, severity, objects);
+			}
+		}
+		return new Log(marker, message, severity, objects);
+	}
+	
+	// log with the message of a lambda, computed now or by the Logger thread if the messages are deferred
+	<O> Log message(Marker marker, ToLogMessage<O> toLogMessage, O object, int severity, Object[] objects) {
+		if (deferMessages) {
+			return obtain(marker, null, severity, objects).defer(toLogMessage, object);
+		}
+		return obtain(marker, toLogMessage.action(object), severity, objects);
+	}
+	
+	// log with a message appended to the buffer of the log, now or by the Logger thread if the messages are deferred
+	<O> Log message(Marker marker, AppendLogMessage<O> appendMessage, O object, int severity) {
+		final Log log = obtain(marker, null, severity, null);
+		if (deferMessages) {
+			return log.defer(appendMessage, object);
+		}
+		try {
+			appendMessage.action(log.pooled ? log.text() : lendText(log), object);
+		} catch (RuntimeException e) {
+			recycle(log);
+			throw e;
+		}
+		return log;
+	}
+	
+	// a log that is not pooled takes a buffer of the builder of the thread, it goes back when the log is recycled
+	private StringBuilder lendText(Log log) {
+		final TextBuffer buffer = builders.get().textBuffer();
+		log.textBuffer = buffer;
+		return log.text(buffer.text);
+	}
+	
+	// add a log to the queue, a discarded log goes back to its pool
+	void offer(Log log) {
+		if (limiter != null && !limiter.tryAcquire(log)) {
+			if (metrics != null) {
+				metrics.rateLimited(log.severity);
+			}
+			recycle(log);
+			return;
+		}
+		if (budget != null && !budget.acquire(log, policy)) {
+			if (metrics != null) {
+				metrics.dropped(log.severity);
+			}
+			recycle(log);
+			return;
+		}
+		log.timestamp = clock.now();
+		final Shard shard = shard(log);
+		// once the queue is too long the logs go to disk until the Logger thread has replayed all of them
+		if (shard.spill != null && shard.spill.isEnabled() && (shard.spill.isActive() ||
+				shard.backlog() >= spillThreshold)) {
+			if (budget != null) {
+				budget.release(log);
+			}
+			if (shard.spill.offer(log)) {
+				shard.published.increment();
+				if (metrics != null) {
+					metrics.enqueued(log.severity);
+				}
+				shard.settings.waitStrategy.signal();
+			} else if (metrics != null) {
+				metrics.dropped(log.severity);
+			}
+			recycle(log);
+		} else if (shard.queue.offer(log)) {
+			shard.published.increment();
+			if (metrics != null) {
+				metrics.enqueued(log.severity);
+			}
+			shard.settings.waitStrategy.signal();
+			// only the log that completes a batch wakes a worker, instead of waiting for the latency target
+			if (scheduler != null && shard.pending.incrementAndGet() == shard.settings.batchSize) {
+				scheduler.wakeOne();
+			}
+		} else {
+			if (metrics != null) {
+				metrics.dropped(log.severity);
+			}
+			if (budget != null) {
+				budget.release(log);
+			}
+			recycle(log);
+		}
+	}
+	
+	// a log that is not pooled gives its key-value arrays and the buffer of its message back to the builder that
+	// filled them
+	private void recycle(Log log) {
+		if (log.pooled) {
+			pool.release(log);
+			return;
+		}
+		if (log.keyValues != null && log.keyValues.owner != null) {
+			final KeyValues keyValues = log.keyValues;
+			log.keyValues = null;
+			keyValues.owner.giveBack(keyValues);
+		}
+		if (log.textBuffer != null) {
+			final TextBuffer buffer = log.textBuffer;
+			log.textBuffer = null;
+			log.text = null;
+			buffer.owner.giveBack(buffer);
+		}
+	}
+	
+	// add a log of trace severity
+	public void logTrace(String s) {
+		if (enabled(trace)) {
+			offer(obtain(s, trace));
+		}
+	}
+	
+	// add a log of debug severity
+	public void logDebug(String s) {
+		if (enabled(debug)) {
+			offer(obtain(s, debug));
+		}
+	}
+	
+	// add a log of info severity
+	public void logInfo(String s) {
+		if (enabled(info)) {
+			offer(obtain(s, info));
+		}
+	}
+	
+	// add a log of warning severity
+	public void logWarn(String s) {
+		if (enabled(warn)) {
+			offer(obtain(s, warn));
+		}
+	}
+	
+	// add a log of error severity
+	public void logError(String s) {
+		if (enabled(error)) {
+			offer(obtain(s, error));
+		}
+	}
+	
+	// add a log of fatal severity
+	public void logFatal(String s) {
+		if (enabled(fatal)) {
+			offer(obtain(s, fatal));
+		}
+	}
+	
+	public void logTrace(String s, Object... params) {
+		if (enabled(trace)) {
+			offer(obtain(s, trace, params));
+		}
+	}
+	
+	public void logDebug(String s, Object... params) {
+		if (enabled(debug)) {
+			offer(obtain(s, debug, params));
+		}
+	}
+	
+	public void logInfo(String s, Object... params) {
+		if (enabled(info)) {
+			offer(obtain(s, info, params));
+		}
+	}
+	
+	public void logWarn(String s, Object... params) {
+		if (enabled(warn)) {
+			offer(obtain(s, warn, params));
+		}
+	}
+	
+	public void logError(String s, Object... params) {
+		if (enabled(error)) {
+			offer(obtain(s, error, params));
+		}
+	}
+	
+	public void logFatal(String s, Object... params) {
+		if (enabled(fatal)) {
+			offer(obtain(s, fatal, params));
+		}
+	}
+	
+	public void logTrace(Marker marker, String s) {
+		if (enabled(trace)) {
+			offer(obtain(marker, s, trace));
+		}
+	}
+	
+	public void logDebug(Marker marker, String s) {
+		if (enabled(debug)) {
+			offer(obtain(marker, s, debug));
+		}
+	}
+	
+	public void logInfo(Marker marker, String s) {
+		if (enabled(info)) {
+			offer(obtain(marker, s, info));
+		}
+	}
+	
+	public void logWarn(Marker marker, String s) {
+		if (enabled(warn)) {
+			offer(obtain(marker, s, warn));
+		}
+	}
+	
+	public void logError(Marker marker, String s) {
+		if (enabled(error)) {
+			offer(obtain(marker, s, error));
+		}
+	}
+	
+	public void logFatal(Marker marker, String s) {
+		if (enabled(fatal)) {
+			offer(obtain(marker, s, fatal));
+		}
+	}
+	
+	public void logTrace(Marker marker, String s, Object... params) {
+		if (enabled(trace)) {
+			offer(obtain(marker, s, trace, params));
+		}
+	}
+	
+	public void logDebug(Marker marker, String s, Object... params) {
+		if (enabled(debug)) {
+			offer(obtain(marker, s, debug, params));
+		}
+	}
+	
+	public void logInfo(Marker marker, String s, Object... params) {
+		if (enabled(info)) {
+			offer(obtain(marker, s, info, params));
+		}
+	}
+	
+	public void logWarn(Marker marker, String s, Object... params) {
+		if (enabled(warn)) {
+			offer(obtain(marker, s, warn, params));
+		}
+	}
+	
+	public void logError(Marker marker, String s, Object... params) {
+		if (enabled(error)) {
+			offer(obtain(marker, s, error, params));
+		}
+	}
+	
+	public void logFatal(Marker marker, String s, Object... params) {
+		if (enabled(fatal)) {
+			offer(obtain(marker, s, fatal, params));
+		}
+	}
+	
+	// a parameter of type long or double is kept in the log without boxing and without an array, the message is
+	// formatted by the sink in the Logger thread. A char, a float and an object have their own overload, so they are
+	// logged as with the varargs: a char is not widened to its code, a float keeps its digits and a null is accepted.
+	// With more parameters the varargs are used, since a char or a float would be widened to long or double
+	public void logTrace(String s, long p0) {
+		if (enabled(trace)) {
+			offer(obtain(s, trace).withPrimitive(p0));
+		}
+	}
+	
+	public void logDebug(String s, long p0) {
+		if (enabled(debug)) {
+			offer(obtain(s, debug).withPrimitive(p0));
 		}
 	}
 	
-	// pause logging, to use when you want save CPU
-	public void pause() {
-		if (status.get() < 1) {
-			throw new IllegalStateException("Logger is already killed");
+	public void logInfo(String s, long p0) {
+		if (enabled(info)) {
+			offer(obtain(s, info).withPrimitive(p0));
 		}
-		sevMin.set(noLog);
-		status.set(1);
 	}
 	
-	// restart logging
-	public void go() {
-		if (status.get() < 1) {
-			throw new IllegalStateException("Logger is already killed");
+	public void logWarn(String s, long p0) {
+		if (enabled(warn)) {
+			offer(obtain(s, warn).withPrimitive(p0));
 		}
-		synchronized (status) {
-			sevMin.compareAndSet(noLog, lastSet.get());
-			status.compareAndSet(1, 2);
-			status.notify();
+	}
+	
+	public void logError(String s, long p0) {
+		if (enabled(error)) {
+			offer(obtain(s, error).withPrimitive(p0));
 		}
 	}
 	
-	// restart thread and logging, after killed too.
-	// WARNING: it is not efficient if the thread is already killed
-	public void restart(@NotNull Severity newSeverity) {
-		synchronized (status) {
-			sevMin.compareAndSet(noLog, newSeverity.ordinal());
-			lastSet.set(newSeverity.ordinal());
-			
-			if (status.get() < 1) {
-				if (status.get() == 0) {
-					try {
-						status.wait();
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-					}
-				}
-				new AsyncLoggerManager.Logger().start();
-			}
-			
-			if (status.get() < 2) {
-				status.set(2);
-				status.notify();
-			}
+	public void logFatal(String s, long p0) {
+		if (enabled(fatal)) {
+			offer(obtain(s, fatal).withPrimitive(p0));
 		}
 	}
 	
-	// add a log of trace severity
-	public void logTrace(String s) {
-		if (sevMin.get() <= trace) {
-			queue.offer(new Log(s, trace));
+	public void logTrace(String s, double p0) {
+		if (enabled(trace)) {
+			offer(obtain(s, trace).withPrimitive(p0));
 		}
 	}
 	
-	// add a log of debug severity
-	public void logDebug(String s) {
-		if (sevMin.get() <= debug) {
-			queue.offer(new Log(s, debug));
+	public void logDebug(String s, double p0) {
+		if (enabled(debug)) {
+			offer(obtain(s, debug).withPrimitive(p0));
 		}
 	}
 	
-	// add a log of info severity
-	public void logInfo(String s) {
-		if (sevMin.get() <= info) {
-			queue.offer(new Log(s, info));
+	public void logInfo(String s, double p0) {
+		if (enabled(info)) {
+			offer(obtain(s, info).withPrimitive(p0));
 		}
 	}
 	
-	// add a log of warning severity
-	public void logWarn(String s) {
-		if (sevMin.get() <= warn) {
-			queue.offer(new Log(s, warn));
+	public void logWarn(String s, double p0) {
+		if (enabled(warn)) {
+			offer(obtain(s, warn).withPrimitive(p0));
 		}
 	}
 	
-	// add a log of error severity
-	public void logError(String s) {
-		if (sevMin.get() <= error) {
-			queue.offer(new Log(s, error));
+	public void logError(String s, double p0) {
+		if (enabled(error)) {
+			offer(obtain(s, error).withPrimitive(p0));
 		}
 	}
 	
-	// add a log of fatal severity
-	public void logFatal(String s) {
-		if (sevMin.get() <= fatal) {
-			queue.offer(new Log(s, fatal));
+	public void logFatal(String s, double p0) {
+		if (enabled(fatal)) {
+			offer(obtain(s, fatal).withPrimitive(p0));
 		}
 	}
 	
-	public void logTrace(String s, Object... params) {
-		if (sevMin.get() <= trace) {
-			queue.offer(new Log(s, trace, params));
+	public void logTrace(String s, char p0) {
+		if (enabled(trace)) {
+			offer(obtain(s, trace, new Object[]{p0}));
 		}
 	}
 	
-	public void logDebug(String s, Object... params) {
-		if (sevMin.get() <= debug) {
-			queue.offer(new Log(s, debug, params));
+	public void logDebug(String s, char p0) {
+		if (enabled(debug)) {
+			offer(obtain(s, debug, new Object[]{p0}));
 		}
 	}
 	
-	public void logInfo(String s, Object... params) {
-		if (sevMin.get() <= info) {
-			queue.offer(new Log(s, info, params));
+	public void logInfo(String s, char p0) {
+		if (enabled(info)) {
+			offer(obtain(s, info, new Object[]{p0}));
 		}
 	}
 	
-	public void logWarn(String s, Object... params) {
-		if (sevMin.get() <= warn) {
-			queue.offer(new Log(s, warn, params));
+	public void logWarn(String s, char p0) {
+		if (enabled(warn)) {
+			offer(obtain(s, warn, new Object[]{p0}));
 		}
 	}
 	
-	public void logError(String s, Object... params) {
-		if (sevMin.get() <= error) {
-			queue.offer(new Log(s, error, params));
+	public void logError(String s, char p0) {
+		if (enabled(error)) {
+			offer(obtain(s, error, new Object[]{p0}));
 		}
 	}
 	
-	public void logFatal(String s, Object... params) {
-		if (sevMin.get() <= fatal) {
-			queue.offer(new Log(s, fatal, params));
+	public void logFatal(String s, char p0) {
+		if (enabled(fatal)) {
+			offer(obtain(s, fatal, new Object[]{p0}));
 		}
 	}
 	
-	public void logTrace(Marker marker, String s) {
-		if (sevMin.get() <= trace) {
-			queue.offer(new Log(marker, s, trace));
+	public void logTrace(String s, float p0) {
+		if (enabled(trace)) {
+			offer(obtain(s, trace, new Object[]{p0}));
 		}
 	}
 	
-	public void logDebug(Marker marker, String s) {
-		if (sevMin.get() <= debug) {
-			queue.offer(new Log(marker, s, debug));
+	public void logDebug(String s, float p0) {
+		if (enabled(debug)) {
+			offer(obtain(s, debug, new Object[]{p0}));
 		}
 	}
 	
-	public void logInfo(Marker marker, String s) {
-		if (sevMin.get() <= info) {
-			queue.offer(new Log(marker, s, info));
+	public void logInfo(String s, float p0) {
+		if (enabled(info)) {
+			offer(obtain(s, info, new Object[]{p0}));
 		}
 	}
 	
-	public void logWarn(Marker marker, String s) {
-		if (sevMin.get() <= warn) {
-			queue.offer(new Log(marker, s, warn));
+	public void logWarn(String s, float p0) {
+		if (enabled(warn)) {
+			offer(obtain(s, warn, new Object[]{p0}));
 		}
 	}
 	
-	public void logError(Marker marker, String s) {
-		if (sevMin.get() <= error) {
-			queue.offer(new Log(marker, s, error));
+	public void logError(String s, float p0) {
+		if (enabled(error)) {
+			offer(obtain(s, error, new Object[]{p0}));
 		}
 	}
 	
-	public void logFatal(Marker marker, String s) {
-		if (sevMin.get() <= fatal) {
-			queue.offer(new Log(marker, s, fatal));
+	public void logFatal(String s, float p0) {
+		if (enabled(fatal)) {
+			offer(obtain(s, fatal, new Object[]{p0}));
 		}
 	}
 	
-	public void logTrace(Marker marker, String s, Object... params) {
-		if (sevMin.get() <= trace) {
-			queue.offer(new Log(marker, s, trace, params));
+	public void logTrace(String s, Object p0) {
+		if (enabled(trace)) {
+			offer(obtain(s, trace, new Object[]{p0}));
 		}
 	}
 	
-	public void logDebug(Marker marker, String s, Object... params) {
-		if (sevMin.get() <= debug) {
-			queue.offer(new Log(marker, s, debug, params));
+	public void logDebug(String s, Object p0) {
+		if (enabled(debug)) {
+			offer(obtain(s, debug, new Object[]{p0}));
 		}
 	}
 	
-	public void logInfo(Marker marker, String s, Object... params) {
-		if (sevMin.get() <= info) {
-			queue.offer(new Log(marker, s, info, params));
+	public void logInfo(String s, Object p0) {
+		if (enabled(info)) {
+			offer(obtain(s, info, new Object[]{p0}));
 		}
 	}
 	
-	public void logWarn(Marker marker, String s, Object... params) {
-		if (sevMin.get() <= warn) {
-			queue.offer(new Log(marker, s, warn, params));
+	public void logWarn(String s, Object p0) {
+		if (enabled(warn)) {
+			offer(obtain(s, warn, new Object[]{p0}));
 		}
 	}
 	
-	public void logError(Marker marker, String s, Object... params) {
-		if (sevMin.get() <= error) {
-			queue.offer(new Log(marker, s, error, params));
+	public void logError(String s, Object p0) {
+		if (enabled(error)) {
+			offer(obtain(s, error, new Object[]{p0}));
 		}
 	}
 	
-	public void logFatal(Marker marker, String s, Object... params) {
-		if (sevMin.get() <= fatal) {
-			queue.offer(new Log(marker, s, fatal, params));
+	public void logFatal(String s, Object p0) {
+		if (enabled(fatal)) {
+			offer(obtain(s, fatal, new Object[]{p0}));
 		}
 	}
 	
 	// add a trace log after computing a lambda expression to have the message
 	// to notice that if the minimum severity is more than trace, the lambda is not processed
 	public <O> void logTrace(@NotNull ToLogMessage<O> toLogMessage, O object) {
-		if (sevMin.get() <= trace) {
-			queue.offer(new Log(toLogMessage.action(object), trace));
+		if (enabled(trace)) {
+			offer(message(null, toLogMessage, object, trace, null));
 		}
 	}
 	
 	// add a debug log after computing a lambda expression to have the message
 	// to notice that if the minimum severity is more than debug, the lambda is not processed
 	public <O> void logDebug(@NotNull ToLogMessage<O> toLogMessage, O object) {
-		if (sevMin.get() <= debug) {
-			queue.offer(new Log(toLogMessage.action(object), debug));
+		if (enabled(debug)) {
+			offer(message(null, toLogMessage, object, debug, null));
 		}
 	}
 	
 	// add an info log after computing a lambda expression to have the message
 	// to notice that if the minimum severity is more than info, the lambda is not processed
 	public <O> void logInfo(@NotNull ToLogMessage<O> toLogMessage, O object) {
-		if (sevMin.get() <= info) {
-			queue.offer(new Log(toLogMessage.action(object), info));
+		if (enabled(info)) {
+			offer(message(null, toLogMessage, object, info, null));
 		}
 	}
 	
 	// add a warning log after computing a lambda expression to have the message
 	// to notice that if the minimum severity is more than warning, the lambda is not processed
 	public <O> void logWarn(@NotNull ToLogMessage<O> toLogMessage, O object) {
-		if (sevMin.get() <= warn) {
-			queue.offer(new Log(toLogMessage.action(object), warn));
+		if (enabled(warn)) {
+			offer(message(null, toLogMessage, object, warn, null));
 		}
 	}
 	
 	// add an error log after computing a lambda expression to have the message
 	// to notice that if the minimum severity is more than error, the lambda is not processed
 	public <O> void logError(@NotNull ToLogMessage<O> toLogMessage, O object) {
-		if (sevMin.get() <= error) {
-			queue.offer(new Log(toLogMessage.action(object), error));
+		if (enabled(error)) {
+			offer(message(null, toLogMessage, object, error, null));
 		}
 	}
 	
 	// add a fatal log after computing a lambda expression to have the message
 	// to notice that if the minimum severity is more than fatal, the lambda is not processed
 	public <O> void logFatal(@NotNull ToLogMessage<O> toLogMessage, O object) {
-		if (sevMin.get() <= fatal) {
-			queue.offer(new Log(toLogMessage.action(object), fatal));
+		if (enabled(fatal)) {
+			offer(message(null, toLogMessage, object, fatal, null));
 		}
 	}
 	
 	public <O> void logTrace(Marker marker, @NotNull ToLogMessage<O> toLogMessage, O object) {
-		if (sevMin.get() <= trace) {
-			queue.offer(new Log(marker, toLogMessage.action(object), trace));
+		if (enabled(trace)) {
+			offer(message(marker, toLogMessage, object, trace, null));
 		}
 	}
 	
 	public <O> void logDebug(Marker marker, @NotNull ToLogMessage<O> toLogMessage, O object) {
-		if (sevMin.get() <= debug) {
-			queue.offer(new Log(marker, toLogMessage.action(object), debug));
+		if (enabled(debug)) {
+			offer(message(marker, toLogMessage, object, debug, null));
 		}
 	}
 	
 	public <O> void logInfo(Marker marker, @NotNull ToLogMessage<O> toLogMessage, O object) {
-		if (sevMin.get() <= info) {
-			queue.offer(new Log(marker, toLogMessage.action(object), info));
+		if (enabled(info)) {
+			offer(message(marker, toLogMessage, object, info, null));
 		}
 	}
 	
 	public <O> void logWarn(Marker marker, @NotNull ToLogMessage<O> toLogMessage, O object) {
-		if (sevMin.get() <= warn) {
-			queue.offer(new Log(marker, toLogMessage.action(object), warn));
+		if (enabled(warn)) {
+			offer(message(marker, toLogMessage, object, warn, null));
 		}
 	}
 	
 	public <O> void logError(Marker marker, @NotNull ToLogMessage<O> toLogMessage, O object) {
-		if (sevMin.get() <= error) {
-			queue.offer(new Log(marker, toLogMessage.action(object), error));
+		if (enabled(error)) {
+			offer(message(marker, toLogMessage, object, error, null));
 		}
 	}
 	
 	public <O> void logFatal(Marker marker, @NotNull ToLogMessage<O> toLogMessage, O object) {
-		if (sevMin.get() <= fatal) {
-			queue.offer(new Log(marker, toLogMessage.action(object), fatal));
+		if (enabled(fatal)) {
+			offer(message(marker, toLogMessage, object, fatal, null));
+		}
+	}
+	
+	// the lambda appends the message to a buffer of the log, that is reused after the log has been written
+	public <O> void logTrace(@NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(trace)) {
+			offer(message(null, appendMessage, object, trace));
+		}
+	}
+	
+	public <O> void logDebug(@NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(debug)) {
+			offer(message(null, appendMessage, object, debug));
+		}
+	}
+	
+	public <O> void logInfo(@NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(info)) {
+			offer(message(null, appendMessage, object, info));
+		}
+	}
+	
+	public <O> void logWarn(@NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(warn)) {
+			offer(message(null, appendMessage, object, warn));
+		}
+	}
+	
+	public <O> void logError(@NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(error)) {
+			offer(message(null, appendMessage, object, error));
+		}
+	}
+	
+	public <O> void logFatal(@NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(fatal)) {
+			offer(message(null, appendMessage, object, fatal));
+		}
+	}
+	
+	public <O> void logTrace(Marker marker, @NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(trace)) {
+			offer(message(marker, appendMessage, object, trace));
+		}
+	}
+	
+	public <O> void logDebug(Marker marker, @NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(debug)) {
+			offer(message(marker, appendMessage, object, debug));
+		}
+	}
+	
+	public <O> void logInfo(Marker marker, @NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(info)) {
+			offer(message(marker, appendMessage, object, info));
+		}
+	}
+	
+	public <O> void logWarn(Marker marker, @NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(warn)) {
+			offer(message(marker, appendMessage, object, warn));
+		}
+	}
+	
+	public <O> void logError(Marker marker, @NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(error)) {
+			offer(message(marker, appendMessage, object, error));
+		}
+	}
+	
+	public <O> void logFatal(Marker marker, @NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(fatal)) {
+			offer(message(marker, appendMessage, object, fatal));
+		}
+	}
+	
+	public <O> void log(@NotNull AppendLogMessage<O> appendMessage, O object, @NotNull Severity severity) {
+		if (severity.ordinal() >= noLog) {
+			throw new IllegalArgumentException("Severity must be less than NO_LOG");
+		}
+		if (enabled(severity.ordinal())) {
+			offer(message(null, appendMessage, object, severity.ordinal()));
+		}
+	}
+	
+	public <O> void log(Marker marker, @NotNull AppendLogMessage<O> appendMessage, O object,
+	                    @NotNull Severity severity) {
+		if (severity.ordinal() >= noLog) {
+			throw new IllegalArgumentException("Severity must be less than NO_LOG");
+		}
+		if (enabled(severity.ordinal())) {
+			offer(message(marker, appendMessage, object, severity.ordinal()));
+		}
+	}
+	
+	// add a trace log whose message is computed by the Logger thread, with a copy of the object taken now
+	public <O> void logTrace(@NotNull ToLogMessage<O> toLogMessage, O object, @NotNull Snapshot<O> snapshot) {
+		if (enabled(trace)) {
+			offer(obtain(null, null, trace, null).defer(toLogMessage, snapshot.copy(object)));
+		}
+	}
+	
+	// add a debug log whose message is computed by the Logger thread, with a copy of the object taken now
+	public <O> void logDebug(@NotNull ToLogMessage<O> toLogMessage, O object, @NotNull Snapshot<O> snapshot) {
+		if (enabled(debug)) {
+			offer(obtain(null, null, debug, null).defer(toLogMessage, snapshot.copy(object)));
+		}
+	}
+	
+	// add an info log whose message is computed by the Logger thread, with a copy of the object taken now
+	public <O> void logInfo(@NotNull ToLogMessage<O> toLogMessage, O object, @NotNull Snapshot<O> snapshot) {
+		if (enabled(info)) {
+			offer(obtain(null, null, info, null).defer(toLogMessage, snapshot.copy(object)));
+		}
+	}
+	
+	// add a warning log whose message is computed by the Logger thread, with a copy of the object taken now
+	public <O> void logWarn(@NotNull ToLogMessage<O> toLogMessage, O object, @NotNull Snapshot<O> snapshot) {
+		if (enabled(warn)) {
+			offer(obtain(null, null, warn, null).defer(toLogMessage, snapshot.copy(object)));
+		}
+	}
+	
+	// add an error log whose message is computed by the Logger thread, with a copy of the object taken now
+	public <O> void logError(@NotNull ToLogMessage<O> toLogMessage, O object, @NotNull Snapshot<O> snapshot) {
+		if (enabled(error)) {
+			offer(obtain(null, null, error, null).defer(toLogMessage, snapshot.copy(object)));
+		}
+	}
+	
+	// add a fatal log whose message is computed by the Logger thread, with a copy of the object taken now
+	public <O> void logFatal(@NotNull ToLogMessage<O> toLogMessage, O object, @NotNull Snapshot<O> snapshot) {
+		if (enabled(fatal)) {
+			offer(obtain(null, null, fatal, null).defer(toLogMessage, snapshot.copy(object)));
 		}
 	}
 	
 	// log a log with a specified severity
 	public void log(String log, @NotNull Severity severity) {
-		if (sevMin.get() <= severity.ordinal()) {
+		if (enabled(severity.ordinal())) {
 			if (severity.ordinal() >= noLog) {
 				throw new IllegalArgumentException("Severity must be less than NO_LOG");
 			}
-			queue.offer(new Log(log, severity.ordinal()));
+			offer(obtain(log, severity.ordinal()));
 		}
 	}
 	
 	// log a log with a specified severity
 	public void log(String log, @NotNull Severity severity, Object... params) {
-		if (sevMin.get() <= severity.ordinal()) {
+		if (enabled(severity.ordinal())) {
 			if (severity.ordinal() >= noLog) {
 				throw new IllegalArgumentException("Severity must be less than NO_LOG");
 			}
-			queue.offer(new Log(log, severity.ordinal(), params));
+			offer(obtain(log, severity.ordinal(), params));
 		}
 	}
 	
 	// log a log with a specified severity
 	public void log(Marker marker, String log, @NotNull Severity severity) {
-		if (sevMin.get() <= severity.ordinal()) {
+		if (enabled(severity.ordinal())) {
 			if (severity.ordinal() >= noLog) {
 				throw new IllegalArgumentException("Severity must be less than NO_LOG");
 			}
-			queue.offer(new Log(marker, log, severity.ordinal()));
+			offer(obtain(marker, log, severity.ordinal()));
 		}
 	}
 	
 	// log a log with a specified severity
 	public void log(Marker marker, String log, @NotNull Severity severity, Object... params) {
-		if (sevMin.get() <= severity.ordinal()) {
+		if (enabled(severity.ordinal())) {
 			if (severity.ordinal() >= noLog) {
 				throw new IllegalArgumentException("Severity must be less than NO_LOG");
 			}
-			queue.offer(new Log(marker, log, severity.ordinal(), params));
+			offer(obtain(marker, log, severity.ordinal(), params));
 		}
 	}
 	
 	// process an object and log a log with a specified severity
 	public <O> void log(@NotNull ToLogMessage<O> toLogMessage, O object, @NotNull Severity severity) {
-		if (sevMin.get() <= severity.ordinal()) {
+		if (enabled(severity.ordinal())) {
 			if (severity.ordinal() >= noLog) {
 				throw new IllegalArgumentException("Severity must be less than NO_LOG");
 			}
-			queue.offer(new Log(toLogMessage.action(object), severity.ordinal()));
+			offer(message(null, toLogMessage, object, severity.ordinal(), null));
 		}
 	}
 	
 	// process an object and log a log with a specified severity
 	public <O> void log(@NotNull ToLogMessage<O> toLogMessage, O object, @NotNull Severity severity,
 	                    Object... params) {
-		if (sevMin.get() <= severity.ordinal()) {
+		if (enabled(severity.ordinal())) {
 			if (severity.ordinal() >= noLog) {
 				throw new IllegalArgumentException("Severity must be less than NO_LOG");
 			}
-			queue.offer(new Log(toLogMessage.action(object), severity.ordinal(), params));
+			offer(message(null, toLogMessage, object, severity.ordinal(), params));
 		}
 	}
 	
 	// process an object and log a log with a specified severity
 	public <O> void log(Marker marker, @NotNull ToLogMessage<O> toLogMessage, O object, @NotNull Severity severity) {
-		if (sevMin.get() <= severity.ordinal()) {
+		if (enabled(severity.ordinal())) {
 			if (severity.ordinal() >= noLog) {
 				throw new IllegalArgumentException("Severity must be less than NO_LOG");
 			}
-			queue.offer(new Log(marker, toLogMessage.action(object), severity.ordinal()));
+			offer(message(marker, toLogMessage, object, severity.ordinal(), null));
 		}
 	}
 	
 	// process an object and log a log with a specified severity
 	public <O> void log(Marker marker, @NotNull ToLogMessage<O> toLogMessage, O object, @NotNull Severity severity,
 	                    Object... params) {
-		if (sevMin.get() <= severity.ordinal()) {
+		if (enabled(severity.ordinal())) {
+			if (severity.ordinal() >= noLog) {
+				throw new IllegalArgumentException("Severity must be less than NO_LOG");
+			}
+			offer(message(marker, toLogMessage, object, severity.ordinal(), params));
+		}
+	}
+	
+	// process a copy of an object in the Logger thread and log a log with a specified severity
+	public <O> void log(@NotNull ToLogMessage<O> toLogMessage, O object, @NotNull Snapshot<O> snapshot,
+	                    @NotNull Severity severity) {
+		if (enabled(severity.ordinal())) {
 			if (severity.ordinal() >= noLog) {
 				throw new IllegalArgumentException("Severity must be less than NO_LOG");
 			}
-			queue.offer(new Log(marker, toLogMessage.action(object), severity.ordinal(), params));
+			offer(obtain(null, null, severity.ordinal(), null).defer(toLogMessage, snapshot.copy(object)));
 		}
 	}
 	
 	// process an object and log a log with a specified severity
 	public <O> void log(@NotNull ToLog<O> toLog, O object, @NotNull Severity severity) {
-		if (sevMin.get() <= severity.ordinal()) {
+		if (enabled(severity.ordinal())) {
 			if (severity.ordinal() >= noLog) {
 				throw new IllegalArgumentException("Severity must be less than NO_LOG");
 			}
-			queue.offer(toLog.action(object).addSeverity(severity.ordinal()));
+			offer(toLog.action(object).addSeverity(severity.ordinal()));
+		}
+	}
+	
+	// a structured log of trace severity, the builder does nothing if the severity is disabled
+	@NotNull
+	public LogBuilder atTrace() {
+		return at(trace);
+	}
+	
+	@NotNull
+	public LogBuilder atDebug() {
+		return at(debug);
+	}
+	
+	@NotNull
+	public LogBuilder atInfo() {
+		return at(info);
+	}
+	
+	@NotNull
+	public LogBuilder atWarn() {
+		return at(warn);
+	}
+	
+	@NotNull
+	public LogBuilder atError() {
+		return at(error);
+	}
+	
+	@NotNull
+	public LogBuilder atFatal() {
+		return at(fatal);
+	}
+	
+	@NotNull
+	public LogBuilder at(@NotNull Severity severity) {
+		if (severity.ordinal() >= noLog) {
+			throw new IllegalArgumentException("Severity must be less than NO_LOG");
 		}
+		return at(severity.ordinal());
+	}
+	
+	private LogBuilder at(int severity) {
+		return enabled(severity) ? builder(severity, null) : LogBuilder.NOOP;
+	}
+	
+	// the reusable builder of the thread
+	LogBuilder builder(int severity, String category) {
+		return builders.get().start(severity, category);
 	}
 	
-	// Thread with waiting time management
+	// Thread with waiting time management, it drains the queue of its shard
 	private class Logger extends Thread {
 		
 		private static final int LOG_TIMES = 1024;
-		private static final String warning = "There are too logs to log them all";
+		private final Drainer drainer;
+		
+		Logger(Shard shard, boolean first) {
+			this.drainer = new Drainer(shard, first);
+		}
 		
 		@Override
 		public void run() {
 			long time;
 			int times;
+			// the shard is drained without waiting until its Logger thread catches up, the other shards still wait
+			boolean busy = false;
 			while (status.get() > 0) {
 				time = System.currentTimeMillis();
 				while (status.get() == 2) {
-					int temp1 = sevMin.get();
-					
-					try {
-						Thread.sleep(waitMax);
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-					}
-					
-					log();
-					long temp;
-					if ((temp = waitMax + time) + waitMax < (time = System.currentTimeMillis())) {
-						if (cpuSaving) {
-							AsyncLoggerManager.this.logWarn(warning);
-							sevMin.compareAndSet(temp1, sevMin.get() + 1);
-						} else {
-							status.compareAndSet(2, 3);
+					if (!busy) {
+						try {
+							drainer.settings.waitStrategy.await(drainer.queue, waitMax);
+						} catch (InterruptedException e) {
+							e.printStackTrace();
 						}
-					} else if (time - temp < 2 && lastSet.get() < (temp1 = sevMin.get())) {
-						sevMin.compareAndSet(temp1, sevMin.get() - 1);
-					}
-				}
-				
-				while (status.get() == 3) {
-					times = 0;
-					for (int i = 0; i < LOG_TIMES; i++) {
-						times += logSize();
-					}
-					if (times > LOG_TIMES) {
-						AsyncLoggerManager.this.logWarn(warning);
-						sevMin.set(sevMin.get() + 1);
-					} else if (times < 2) {
-						if (lastSet.get() >= sevMin.get()) {
-							status.compareAndSet(3, 2);
-						} else {
-							sevMin.set(Math.max(sevMin.get() - 1, lastSet.get()));
+						
+						drainer.log();
+						long temp;
+						if ((temp = waitMax + time) + waitMax < (time = System.currentTimeMillis())) {
+							drainer.shard.overloaded = true;
+							if (cpuSaving && limiter == null) {
+								overloads.incrementAndGet();
+							} else {
+								busy = true;
+							}
+						} else if (time - temp < 2) {
+							drainer.shard.overloaded = false;
+						}
+					} else {
+						times = 0;
+						for (int i = 0; i < LOG_TIMES; i++) {
+							times += drainer.log();
 						}
+						if (times > LOG_TIMES) {
+							drainer.shard.overloaded = true;
+							if (limiter == null) {
+								overloads.incrementAndGet();
+							}
+						} else if (times < 2) {
+							drainer.shard.overloaded = false;
+							busy = false;
+							time = System.currentTimeMillis();
+						}
+					}
+					if (drainer.first) {
+						adjustSeverity();
 					}
 				}
 				
@@ -596,33 +1910,255 @@ public class AsyncLoggerManager {
 				}
 			}
 			
+			drainer.finish();
+		}
+		
+		// the minimum severity is raised once for all the requests of the shards, and it is lowered only when no
+		// shard is overloaded
+		private void adjustSeverity() {
+			final int current = sevMin.get();
+			if (overloads.getAndSet(0) > 0) {
+				if (current < fatal) {
+					drainer.warning();
+					sevMin.compareAndSet(current, current + 1);
+				}
+			} else if (lastSet.get() < current && current < noLog && !overloaded()) {
+				sevMin.compareAndSet(current, current - 1);
+			}
+		}
+		
+		private boolean overloaded() {
+			for (Shard shard : shards) {
+				if (shard.overloaded) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+	
+	// a shard drained by the threads of a DrainScheduler instead of its own Logger thread.
+	// The minimum severity is never raised: the scheduler drains the shard when it has a full batch
+	// or when its oldest log could wait no more.
+	private class ScheduledLogger implements DrainScheduler.Task {
+		
+		private final Drainer drainer;
+		
+		ScheduledLogger(Shard shard, boolean first) {
+			this.drainer = new Drainer(shard, first);
+		}
+		
+		@Override
+		public long waitMillis() {
+			return waitMax;
+		}
+		
+		@Override
+		public boolean ready() {
+			final int s = status.get();
+			return s <= 0 || s >= 2 && (!drainer.queue.isEmpty() || drainer.shard.spill != null &&
+					drainer.shard.spill.isActive() || drainer.shard.applied != drainer.shard.settings ||
+					summaryDue());
+		}
+		
+		// a full batch, a thread waiting in flush(), the last logs of a killed manager or the summary of the rate
+		// limits, that is written even if the queue stays empty
+		@Override
+		public boolean urgent() {
+			return status.get() <= 0 || flushing.get() > 0 || drainer.queue.size() >= drainer.settings.batchSize ||
+					drainer.shard.applied != drainer.shard.settings || summaryDue();
+		}
+		
+		private boolean summaryDue() {
+			return drainer.first && limiter != null && limiter.summaryDue();
+		}
+		
+		@Override
+		public boolean drainOnce() {
+			if (status.get() <= 0) {
+				drainer.finish();
+				return false;
+			}
+			drainer.shard.pending.set(0);
+			drainer.log();
+			return true;
+		}
+	}
+	
+	// takes the logs of the queue of a shard and writes them to its sink
+	private class Drainer {
+		
+		private static final String warning = "There are too logs to log them all";
+		private final Shard shard;
+		private final LogQueue queue;
+		// settings used now, they change only between two batches
+		private Settings settings;
+		// only the Logger thread of the first shard writes the summaries of the rate limits
+		private final boolean first;
+		// reusable array of the logs taken from the queue
+		private Log[] batch;
+		// buffers of the deferred messages appended for the logs of the batch that are not pooled
+		private StringBuilder[] texts;
+		private final Log[] warningBatch = {new Log(warning, warn)};
+		
+		Drainer(Shard shard, boolean first) {
+			this.shard = shard;
+			this.queue = shard.queue;
+			this.settings = shard.settings;
+			this.batch = new Log[settings.batchSize];
+			this.texts = new StringBuilder[settings.batchSize];
+			this.first = first;
+		}
+		
+		// the last logs, then the last Logger thread that ends marks the manager as dead
+		void finish() {
 			log();
-			
-			synchronized (status) {
-				status.set(-1);
-				status.notifyAll();
+			if (running.decrementAndGet() == 0) {
+				if (limiter != null) {
+					summary(true);
+				}
+				if (metrics != null) {
+					metrics.unregister();
+				}
+				if (ownedLog4j != null) {
+					ownedLog4j.stop();
+				}
+				
+				synchronized (status) {
+					status.set(-1);
+					status.notifyAll();
+				}
+				synchronized (barrier) {
+					barrier.notifyAll();
+				}
+			}
+		}
+		
+		// the deferred messages are computed
+		private void resolve(Log log, int i) {
+			if (log.toLogMessage != null) {
+				try {
+					log.message = log.toLogMessage.action(log.object);
+				} catch (RuntimeException e) {
+					log.message = "Deferred message not computed: " + e;
+				}
+				log.toLogMessage = null;
+				log.object = null;
+			} else if (log.appendMessage != null) {
+				try {
+					log.appendMessage.action(log.text(text(i)), log.object);
+				} catch (RuntimeException e) {
+					log.text = null;
+					log.message = "Deferred message not computed: " + e;
+				}
+				log.appendMessage = null;
+				log.object = null;
+			}
+		}
+		
+		// the buffer of the position of the batch, replaced if it has grown too much
+		private StringBuilder text(int i) {
+			StringBuilder text = texts[i];
+			if (text == null || text.capacity() > Log.MAX_BUFFER) {
+				texts[i] = text = new StringBuilder(128);
+			}
+			return text;
+		}
+		
+		// the warning is given directly to the sink, the Logger thread must never wait for a slot of the queue
+		void warning() {
+			if (sevMin.get() <= warn) {
+				settings.sink.write(warningBatch, 1);
 			}
 		}
 		
-		private void log() {
-			final Iterator<Log> iter = queue.iterator();
-			while (iter.hasNext()) {
-				final Log log = iter.next();
-				toLog[log.severity].log(logger, log);
-				iter.remove();
+		// the logs discarded by the rate limits, written directly to the sink like the warning.
+		// The last summary is written when the Logger thread ends, after the minimum severity is NO_LOG.
+		private void summary(boolean force) {
+			final List<String> summary = limiter.summary(force);
+			if (summary != null && (force || sevMin.get() <= warn)) {
+				final Log[] logs = new Log[summary.size()];
+				for (int i = 0; i < logs.length; i++) {
+					logs[i] = new Log(summary.get(i), warn);
+					logs[i].timestamp = clock.now();
+				}
+				settings.sink.write(logs, logs.length);
 			}
 		}
 		
-		private int logSize() {
-			int size = 0;
-			final Iterator<Log> iter = queue.iterator();
-			while (iter.hasNext()) {
-				final Log log = iter.next();
-				toLog[log.severity].log(logger, log);
-				iter.remove();
-				size++;
+		// write all the logs of the queue in batches, it returns how many they are
+		int log() {
+			int size = 0, n;
+			adopt();
+			while ((n = queue.drain(batch, batch.length)) > 0) {
+				write(batch, n);
+				size += n;
+				shard.consumed += n;
+				adopt();
+			}
+			// the logs on disk are newer than the ones that were in the queue
+			if (shard.spill != null && shard.spill.isActive()) {
+				while ((n = shard.spill.replay(settings.sink, batch)) >= 0) {
+					size += n;
+					shard.consumed += n;
+					adopt();
+					while ((n = queue.drain(batch, batch.length)) > 0) {
+						write(batch, n);
+						size += n;
+						shard.consumed += n;
+						adopt();
+					}
+				}
+			}
+			if (size > 0 && flushing.get() > 0) {
+				synchronized (barrier) {
+					barrier.notifyAll();
+				}
+			}
+			if (limiter != null && first) {
+				summary(false);
 			}
 			return size;
 		}
+		
+		private void write(Log[] batch, int n) {
+			final long start = metrics != null ? System.nanoTime() : 0;
+			for (int i = 0; i < n; i++) {
+				resolve(batch[i], i);
+			}
+			settings.sink.write(batch, n);
+			if (metrics != null) {
+				metrics.drained(n, System.nanoTime() - start);
+			}
+			long bytes = 0;
+			for (int i = 0; i < n; i++) {
+				bytes += batch[i].bytes;
+				if (batch[i].text == texts[i]) {
+					batch[i].text = null;
+				}
+				recycle(batch[i]);
+				batch[i] = null;
+			}
+			if (budget != null) {
+				budget.release(bytes);
+			}
+		}
+		
+		// the settings of reconfigure() are taken between two batches, the array is reused until the batch size
+		// is changed
+		private void adopt() {
+			final Settings next = shard.settings;
+			if (next != settings) {
+				settings = next;
+				if (batch.length != next.batchSize) {
+					batch = new Log[next.batchSize];
+					texts = new StringBuilder[next.batchSize];
+				}
+				shard.applied = next;
+				synchronized (barrier) {
+					barrier.notifyAll();
+				}
+			}
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package AsyncLogger;
+
+// metrics of an AsyncLoggerManager published with JMX, the arrays of counters are indexed by Severity.ordinal()
+// and the histograms count in bucket i the values from 2^i to 2^(i+1) - 1 (bucket 0 counts 0 and 1 too)
+@SuppressWarnings("unused")
+public interface AsyncLoggerMetricsMXBean {
+	
+	// logs added to the queue
+	long[] getEnqueued();
+	
+	// logs discarded because their severity is lower than the one set, or while the manager is paused
+	long[] getFiltered();
+	
+	// logs discarded because the queue was full
+	long[] getDropped();
+	
+	// logs discarded because the Logger thread could not keep up and raised the minimum severity
+	long[] getThrottled();
+	
+	// logs discarded by the rate limits of the builder
+	long[] getRateLimited();
+	
+	int getQueueDepth();
+	
+	// estimated bytes of the logs in the queues, 0 without a memory budget
+	long getRetainedBytes();
+	
+	// minimum severity of the logs that are processed now
+	String getSeverityMin();
+	
+	// minimum severity set by the application
+	String getSeveritySet();
+	
+	// logs written to the sink together
+	long[] getBatchSizes();
+	
+	// nanoseconds to prepare and write a batch
+	long[] getDrainNanos();
+}
@@ -0,0 +1,202 @@
+package AsyncLogger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+
+// the Logger thread writes the logs in a compact binary file, read back with BinaryLogDecoder.
+// The message is not formatted: a template is written once in a dictionary record and each log refers to it
+// by id, followed by its parameters with their types, so the primitive parameters are never turned into text.
+// The file starts with the bytes "ALMB" and the version, then there are only records:
+// TEMPLATE: 1, int id, string
+// EVENT: 2, int template id (-1 and a string if the message is not in the dictionary), byte severity,
+// long nanoseconds from the epoch, int marker id (-1 if there is no marker), int category id (-1 if there is no
+// category), byte number of parameters and, for each parameter, a byte with its type and its value, then a byte
+// with the number of key-value pairs of a LogBuilder and, for each pair, an int key id (-1 and a string if the key
+// is not in the dictionary) and the value as a parameter.
+// A string is an int with the number of bytes and the bytes in UTF-8, all the numbers are big-endian.
+@SuppressWarnings("unused")
+public class BinaryFileSink extends ChannelSink {
+	
+	static final byte[] MAGIC = {'A', 'L', 'M', 'B'};
+	static final byte VERSION = 1;
+	
+	static final byte END = 0;
+	static final byte TEMPLATE = 1;
+	static final byte EVENT = 2;
+	
+	static final byte NULL = 0;
+	static final byte STRING = 1;
+	static final byte LONG = 2;
+	static final byte DOUBLE = 3;
+	static final byte BOOLEAN = 4;
+	static final byte INT = 5;
+	// the result of toString and the stack trace
+	static final byte THROWABLE = 6;
+	
+	// templates and markers in the dictionary, after that the messages are written in the events
+	private static final int MAX_TEMPLATES = 1 << 16;
+	
+	// the templates are found by content, so a message built at runtime with the same text has the same id
+	private final HashMap<String, Integer> templates = new HashMap<>();
+	// messages seen once, they become templates the second time: a message built at runtime with a different text
+	// every time is written in the event and doesn't take a place in the dictionary
+	private final HashSet<String> candidates = new HashSet<>();
+	// ids of the keys of the pairs of the log that is written
+	private final int[] keys = new int[255];
+	
+	public BinaryFileSink(@NotNull String fileName) throws IOException {
+		this(fileName, DEFAULT_BUFFER_SIZE, false);
+	}
+	
+	// a buffer of 256 KB, or regions of 64 MB if the file is memory-mapped
+	public BinaryFileSink(@NotNull String fileName, boolean memoryMapped) throws IOException {
+		this(fileName, memoryMapped ? DEFAULT_REGION_SIZE : DEFAULT_BUFFER_SIZE, memoryMapped);
+	}
+	
+	// with memoryMapped the file is mapped in regions of size bytes, otherwise size is the size of the buffer.
+	// A mapped file is longer than its logs until the sink is closed, the decoder stops at the zeros at its end.
+	// Every sink starts a new dictionary, so a file must be written by one sink: an existing file is truncated.
+	public BinaryFileSink(@NotNull String fileName, int size, boolean memoryMapped) throws IOException {
+		super(fileName, size, memoryMapped, true);
+		buffer.put(MAGIC).put(VERSION);
+	}
+	
+	@Override
+	void encode(Log log) throws IOException {
+		// an appended message is not a template, it is written in the event
+		final int template = log.text != null ? -1 : template(log.message, false);
+		final int marker = log.marker != null ? template(log.marker.getName(), true) : -1;
+		final int category = log.category != null ? template(log.category, true) : -1;
+		final int count = log.hasPrimitive ? 1 : log.objects != null ? log.objects.length : 0;
+		// the keys are written in the dictionary before the event
+		final int pairs = Math.min(log.getKeyValueCount(), 255);
+		for (int i = 0; i < pairs; i++) {
+			keys[i] = template(log.keyValues.keys[i], true);
+		}
+		
+		ensure(23);
+		buffer.put(EVENT).putInt(template);
+		if (template == -1) {
+			putString(log.text != null ? log.text : log.message);
+		}
+		ensure(22);
+		buffer.put((byte) log.severity).putLong(log.timestamp != 0 ? log.timestamp :
+				System.currentTimeMillis() * 1_000_000L).putInt(marker).putInt(category)
+				.put((byte) Math.min(count, 255));
+		
+		if (log.hasPrimitive) {
+			ensure(9);
+			buffer.put(log.doublePrimitive ? DOUBLE : LONG).putLong(log.primitive);
+		} else {
+			for (int i = 0; i < count && i < 255; i++) {
+				putParameter(log.objects[i]);
+			}
+		}
+		
+		ensure(1);
+		buffer.put((byte) pairs);
+		for (int i = 0; i < pairs; i++) {
+			final KeyValues keyValues = log.keyValues;
+			ensure(4);
+			buffer.putInt(keys[i]);
+			if (keys[i] == -1) {
+				putString(keyValues.keys[i]);
+			}
+			ensure(9);
+			switch (keyValues.types[i]) {
+				case KeyValues.LONG:
+					buffer.put(LONG).putLong(keyValues.primitives[i]);
+					break;
+				case KeyValues.DOUBLE:
+					buffer.put(DOUBLE).putLong(keyValues.primitives[i]);
+					break;
+				case KeyValues.BOOLEAN:
+					buffer.put(BOOLEAN).put((byte) keyValues.primitives[i]);
+					break;
+				default:
+					putParameter(keyValues.objects[i]);
+			}
+		}
+	}
+	
+	// id of the string in the dictionary, written if it is new; -1 if it is not in the dictionary.
+	// Markers, categories and keys are added the first time, messages the second time
+	private int template(String string, boolean always) throws IOException {
+		if (string == null) {
+			return -1;
+		}
+		final Integer id = templates.get(string);
+		if (id != null) {
+			return id;
+		}
+		if (templates.size() >= MAX_TEMPLATES) {
+			return -1;
+		}
+		if (!always && candidates.add(string)) {
+			if (candidates.size() >= MAX_TEMPLATES) {
+				candidates.clear();
+			}
+			return -1;
+		}
+		candidates.remove(string);
+		final int next = templates.size();
+		templates.put(string, next);
+		ensure(5);
+		buffer.put(TEMPLATE).putInt(next);
+		putString(string);
+		return next;
+	}
+	
+	private void putParameter(Object param) throws IOException {
+		ensure(9);
+		if (param == null) {
+			buffer.put(NULL);
+		} else if (param instanceof Long) {
+			buffer.put(LONG).putLong((Long) param);
+		} else if (param instanceof Double) {
+			buffer.put(DOUBLE).putDouble((Double) param);
+		} else if (param instanceof Integer) {
+			buffer.put(INT).putInt((Integer) param);
+		} else if (param instanceof Boolean) {
+			buffer.put(BOOLEAN).put((byte) ((Boolean) param ? 1 : 0));
+		} else if (param instanceof Throwable) {
+			buffer.put(THROWABLE);
+			final StringWriter writer = new StringWriter();
+			((Throwable) param).printStackTrace(new PrintWriter(writer));
+			putString(param.toString());
+			putString(writer.toString());
+		} else {
+			buffer.put(STRING);
+			putString(String.valueOf(param));
+		}
+	}
+	
+	// the length is written after the characters have been encoded in the buffer,
+	// a string that could not fit in the buffer is encoded in an array first
+	private void putString(CharSequence string) throws IOException {
+		if (string == null) {
+			ensure(4);
+			buffer.putInt(-1);
+			return;
+		}
+		final long bound = 4 + string.length() * 3L;
+		if (bound > buffer.capacity()) {
+			final byte[] bytes = string.toString().getBytes(StandardCharsets.UTF_8);
+			ensure(4);
+			buffer.putInt(bytes.length);
+			putBytes(bytes);
+			return;
+		}
+		ensure((int) bound);
+		final int start = buffer.position();
+		buffer.position(start + 4);
+		putChars(string);
+		buffer.putInt(start, buffer.position() - start - 4);
+	}
+}
@@ -0,0 +1,84 @@
+package AsyncLogger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+// reads a file written by BinaryFileSink and writes its logs as text, in the format of FileSink.
+// From the command line: java -cp ... AsyncLogger.BinaryLogDecoder logs.bin [logs.txt]
+// without the second file the logs are written on the standard output.
+@SuppressWarnings("unused")
+public class BinaryLogDecoder {
+	
+	private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS")
+			.withZone(ZoneId.systemDefault());
+	private static final String[] levels = new String[AsyncLoggerManager.noLog];
+	
+	static {
+		for (Severity severity : Severity.values()) {
+			if (severity != Severity.NO_LOG) {
+				levels[severity.ordinal()] = String.format("%-5s", severity);
+			}
+		}
+	}
+	
+	private BinaryLogDecoder() {
+	}
+	
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1 || args.length > 2) {
+			System.err.println("Usage: BinaryLogDecoder <binary file> [text file]");
+			System.exit(1);
+		}
+		try (InputStream in = new FileInputStream(args[0])) {
+			if (args.length == 2) {
+				try (Writer out = new OutputStreamWriter(new FileOutputStream(args[1]), StandardCharsets.UTF_8)) {
+					decode(in, out);
+				}
+			} else {
+				final Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+				decode(in, out);
+				out.flush();
+			}
+		}
+	}
+	
+	// decode all the logs of the stream, it stops at the end of the stream or at the zeros at the end of a
+	// memory-mapped file that has not been closed. It returns the number of logs.
+	public static long decode(@NotNull InputStream input, @NotNull Writer output) throws IOException {
+		final BinaryLogReader reader = new BinaryLogReader(input);
+		final StringBuilder builder = new StringBuilder(256);
+		long logs = 0;
+		Log log;
+		while ((log = reader.next()) != null) {
+			builder.setLength(0);
+			format(log, builder);
+			output.write(builder.toString());
+			logs++;
+		}
+		output.flush();
+		return logs;
+	}
+	
+	private static void format(Log log, StringBuilder builder) {
+		DATE.formatTo(Instant.ofEpochSecond(0, log.timestamp), builder);
+		builder.append(' ').append(levels[log.severity]).append(' ');
+		if (log.category != null) {
+			builder.append(log.category).append(' ');
+		}
+		if (log.marker != null) {
+			builder.append('[').append(log.marker.getName()).append("] ");
+		}
+		MessageFormatter.format(builder, log);
+		builder.append('\n');
+	}
+}
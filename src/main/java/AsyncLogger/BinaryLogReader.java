@@ -0,0 +1,163 @@
+package AsyncLogger;
+
+import org.apache.logging.log4j.MarkerManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// reads back the logs of a file written by BinaryFileSink, the templates records are kept in the dictionary.
+// The parameters of primitive type come back boxed and a Throwable prints the stack trace that was written.
+class BinaryLogReader {
+	
+	private final DataInputStream in;
+	private final List<String> templates = new ArrayList<>();
+	private long logs;
+	
+	BinaryLogReader(@NotNull InputStream input) throws IOException {
+		this.in = new DataInputStream(new BufferedInputStream(input, 64 * 1024));
+		final byte[] magic = new byte[BinaryFileSink.MAGIC.length];
+		in.readFully(magic);
+		for (int i = 0; i < magic.length; i++) {
+			if (magic[i] != BinaryFileSink.MAGIC[i]) {
+				throw new IOException("Not a binary log file");
+			}
+		}
+		final byte version = in.readByte();
+		if (version != BinaryFileSink.VERSION) {
+			throw new IOException("Unsupported version " + version);
+		}
+	}
+	
+	// the next log, null at the end of the stream or at the zeros at the end of a memory-mapped file that
+	// has not been closed. A record cut by the end of the stream throws EOFException.
+	Log next() throws IOException {
+		for (;;) {
+			final int tag;
+			try {
+				tag = in.readByte();
+			} catch (EOFException e) {
+				return null;
+			}
+			if (tag == BinaryFileSink.END) {
+				return null;
+			} else if (tag == BinaryFileSink.TEMPLATE) {
+				final int id = in.readInt();
+				final String template = readString(in);
+				while (templates.size() <= id) {
+					templates.add(null);
+				}
+				templates.set(id, template);
+			} else if (tag == BinaryFileSink.EVENT) {
+				logs++;
+				return readEvent();
+			} else {
+				throw new IOException("Unknown record " + tag + " after " + logs + " logs");
+			}
+		}
+	}
+	
+	private Log readEvent() throws IOException {
+		final int template = in.readInt();
+		final String message = template == -1 ? readString(in) : templates.get(template);
+		final int severity = in.readByte();
+		final long nanos = in.readLong();
+		final int marker = in.readInt();
+		final int category = in.readInt();
+		final int count = in.readUnsignedByte();
+		final Object[] params = count > 0 ? new Object[count] : null;
+		for (int i = 0; i < count; i++) {
+			params[i] = readParameter(in);
+		}
+		if (severity < 0 || severity >= AsyncLoggerManager.noLog) {
+			throw new IOException("Unknown severity " + severity + " after " + logs + " logs");
+		}
+		final Log log = new Log(marker != -1 ? MarkerManager.getMarker(templates.get(marker)) : null, message, severity,
+				params);
+		log.category = category != -1 ? templates.get(category) : null;
+		log.timestamp = nanos;
+		final int keyValues = in.readUnsignedByte();
+		if (keyValues > 0) {
+			log.keyValues = new KeyValues();
+		}
+		for (int i = 0; i < keyValues; i++) {
+			final int id = in.readInt();
+			final String key = id == -1 ? readString(in) : templates.get(id);
+			final Object value = readParameter(in);
+			if (value instanceof Long) {
+				log.keyValues.add(key, (long) (Long) value);
+			} else if (value instanceof Double) {
+				log.keyValues.add(key, (double) (Double) value);
+			} else if (value instanceof Boolean) {
+				log.keyValues.add(key, (boolean) (Boolean) value);
+			} else {
+				log.keyValues.add(key, value);
+			}
+		}
+		return log;
+	}
+	
+	private static Object readParameter(DataInputStream in) throws IOException {
+		final byte type = in.readByte();
+		switch (type) {
+			case BinaryFileSink.NULL:
+				return null;
+			case BinaryFileSink.STRING:
+				return readString(in);
+			case BinaryFileSink.LONG:
+				return in.readLong();
+			case BinaryFileSink.DOUBLE:
+				return in.readDouble();
+			case BinaryFileSink.BOOLEAN:
+				return in.readByte() != 0;
+			case BinaryFileSink.INT:
+				return in.readInt();
+			case BinaryFileSink.THROWABLE:
+				return new DecodedThrowable(readString(in), readString(in));
+			default:
+				throw new IOException("Unknown parameter type " + type);
+		}
+	}
+	
+	private static String readString(DataInputStream in) throws IOException {
+		final int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		final byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	// a Throwable read from the file, it prints the stack trace that was written
+	private static final class DecodedThrowable extends Throwable {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final String string;
+		private final String stack;
+		
+		DecodedThrowable(String string, String stack) {
+			super(null, null, false, false);
+			this.string = string;
+			this.stack = stack;
+		}
+		
+		@Override
+		public String toString() {
+			return string;
+		}
+		
+		@Override
+		public void printStackTrace(PrintWriter writer) {
+			writer.print(stack);
+		}
+	}
+}
@@ -0,0 +1,612 @@
+package AsyncLogger;
+
+import org.apache.logging.log4j.Marker;
+import org.jetbrains.annotations.NotNull;
+
+// handle of a named category of an AsyncLoggerManager, created by AsyncLoggerManager.category(String).
+// The logs go to the queues of the manager with the name of the category, its minimum severity is an element
+// of an int array of the manager: the parents of the name are resolved when the handle is created or
+// a severity is set, so each log reads only that element.
+@SuppressWarnings("unused")
+public final class CategoryLogger {
+	
+	private static final int trace = AsyncLoggerManager.trace;
+	private static final int debug = AsyncLoggerManager.debug;
+	private static final int info = AsyncLoggerManager.info;
+	private static final int warn = AsyncLoggerManager.warn;
+	private static final int error = AsyncLoggerManager.error;
+	private static final int fatal = AsyncLoggerManager.fatal;
+	
+	private final AsyncLoggerManager manager;
+	final String name;
+	// index of the minimum severity in the array of the manager
+	final int id;
+	
+	CategoryLogger(AsyncLoggerManager manager, String name, int id) {
+		this.manager = manager;
+		this.name = name;
+		this.id = id;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	// minimum severity of the category, null if it follows the one of the manager
+	public Severity getSeverity() {
+		final int level = manager.categoryLevel(id);
+		return level < 0 ? null : Severity.getNewSeverity(level);
+	}
+	
+	// if a log of the severity would be added now, to avoid building its parameters
+	public boolean isEnabled(@NotNull Severity severity) {
+		return manager.accepts(severity.ordinal(), manager.categoryLevel(id));
+	}
+	
+	private boolean enabled(int severity) {
+		return manager.enabled(severity, manager.categoryLevel(id));
+	}
+	
+	private void offer(Marker marker, String s, int severity, Object[] params) {
+		final Log log = manager.obtain(marker, s, severity, params);
+		log.category = name;
+		manager.offer(log);
+	}
+	
+	private void offer(String s, int severity, long p0) {
+		final Log log = manager.obtain(null, s, severity, null).withPrimitive(p0);
+		log.category = name;
+		manager.offer(log);
+	}
+	
+	private void offer(String s, int severity, double p0) {
+		final Log log = manager.obtain(null, s, severity, null).withPrimitive(p0);
+		log.category = name;
+		manager.offer(log);
+	}
+	
+	private <O> void offer(Marker marker, AppendLogMessage<O> appendMessage, O object, int severity) {
+		final Log log = manager.message(marker, appendMessage, object, severity);
+		log.category = name;
+		manager.offer(log);
+	}
+	
+	private <O> void offer(Marker marker, ToLogMessage<O> toLogMessage, O object, int severity) {
+		final Log log = manager.message(marker, toLogMessage, object, severity, null);
+		log.category = name;
+		manager.offer(log);
+	}
+	
+	public void logTrace(String s) {
+		if (enabled(trace)) {
+			offer(null, s, trace, null);
+		}
+	}
+	
+	public void logDebug(String s) {
+		if (enabled(debug)) {
+			offer(null, s, debug, null);
+		}
+	}
+	
+	public void logInfo(String s) {
+		if (enabled(info)) {
+			offer(null, s, info, null);
+		}
+	}
+	
+	public void logWarn(String s) {
+		if (enabled(warn)) {
+			offer(null, s, warn, null);
+		}
+	}
+	
+	public void logError(String s) {
+		if (enabled(error)) {
+			offer(null, s, error, null);
+		}
+	}
+	
+	public void logFatal(String s) {
+		if (enabled(fatal)) {
+			offer(null, s, fatal, null);
+		}
+	}
+	
+	public void logTrace(String s, Object... params) {
+		if (enabled(trace)) {
+			offer(null, s, trace, params);
+		}
+	}
+	
+	public void logDebug(String s, Object... params) {
+		if (enabled(debug)) {
+			offer(null, s, debug, params);
+		}
+	}
+	
+	public void logInfo(String s, Object... params) {
+		if (enabled(info)) {
+			offer(null, s, info, params);
+		}
+	}
+	
+	public void logWarn(String s, Object... params) {
+		if (enabled(warn)) {
+			offer(null, s, warn, params);
+		}
+	}
+	
+	public void logError(String s, Object... params) {
+		if (enabled(error)) {
+			offer(null, s, error, params);
+		}
+	}
+	
+	public void logFatal(String s, Object... params) {
+		if (enabled(fatal)) {
+			offer(null, s, fatal, params);
+		}
+	}
+	
+	public void logTrace(Marker marker, String s, Object... params) {
+		if (enabled(trace)) {
+			offer(marker, s, trace, params);
+		}
+	}
+	
+	public void logDebug(Marker marker, String s, Object... params) {
+		if (enabled(debug)) {
+			offer(marker, s, debug, params);
+		}
+	}
+	
+	public void logInfo(Marker marker, String s, Object... params) {
+		if (enabled(info)) {
+			offer(marker, s, info, params);
+		}
+	}
+	
+	public void logWarn(Marker marker, String s, Object... params) {
+		if (enabled(warn)) {
+			offer(marker, s, warn, params);
+		}
+	}
+	
+	public void logError(Marker marker, String s, Object... params) {
+		if (enabled(error)) {
+			offer(marker, s, error, params);
+		}
+	}
+	
+	public void logFatal(Marker marker, String s, Object... params) {
+		if (enabled(fatal)) {
+			offer(marker, s, fatal, params);
+		}
+	}
+	
+	// a long or a double parameter is not boxed, a char, a float and an object are logged as with the varargs
+	public void logTrace(String s, long p0) {
+		if (enabled(trace)) {
+			offer(s, trace, p0);
+		}
+	}
+	
+	public void logDebug(String s, long p0) {
+		if (enabled(debug)) {
+			offer(s, debug, p0);
+		}
+	}
+	
+	public void logInfo(String s, long p0) {
+		if (enabled(info)) {
+			offer(s, info, p0);
+		}
+	}
+	
+	public void logWarn(String s, long p0) {
+		if (enabled(warn)) {
+			offer(s, warn, p0);
+		}
+	}
+	
+	public void logError(String s, long p0) {
+		if (enabled(error)) {
+			offer(s, error, p0);
+		}
+	}
+	
+	public void logFatal(String s, long p0) {
+		if (enabled(fatal)) {
+			offer(s, fatal, p0);
+		}
+	}
+	
+	public void logTrace(String s, double p0) {
+		if (enabled(trace)) {
+			offer(s, trace, p0);
+		}
+	}
+	
+	public void logDebug(String s, double p0) {
+		if (enabled(debug)) {
+			offer(s, debug, p0);
+		}
+	}
+	
+	public void logInfo(String s, double p0) {
+		if (enabled(info)) {
+			offer(s, info, p0);
+		}
+	}
+	
+	public void logWarn(String s, double p0) {
+		if (enabled(warn)) {
+			offer(s, warn, p0);
+		}
+	}
+	
+	public void logError(String s, double p0) {
+		if (enabled(error)) {
+			offer(s, error, p0);
+		}
+	}
+	
+	public void logFatal(String s, double p0) {
+		if (enabled(fatal)) {
+			offer(s, fatal, p0);
+		}
+	}
+	
+	public void logTrace(String s, char p0) {
+		if (enabled(trace)) {
+			offer(null, s, trace, new Object[]{p0});
+		}
+	}
+	
+	public void logDebug(String s, char p0) {
+		if (enabled(debug)) {
+			offer(null, s, debug, new Object[]{p0});
+		}
+	}
+	
+	public void logInfo(String s, char p0) {
+		if (enabled(info)) {
+			offer(null, s, info, new Object[]{p0});
+		}
+	}
+	
+	public void logWarn(String s, char p0) {
+		if (enabled(warn)) {
+			offer(null, s, warn, new Object[]{p0});
+		}
+	}
+	
+	public void logError(String s, char p0) {
+		if (enabled(error)) {
+			offer(null, s, error, new Object[]{p0});
+		}
+	}
+	
+	public void logFatal(String s, char p0) {
+		if (enabled(fatal)) {
+			offer(null, s, fatal, new Object[]{p0});
+		}
+	}
+	
+	public void logTrace(String s, float p0) {
+		if (enabled(trace)) {
+			offer(null, s, trace, new Object[]{p0});
+		}
+	}
+	
+	public void logDebug(String s, float p0) {
+		if (enabled(debug)) {
+			offer(null, s, debug, new Object[]{p0});
+		}
+	}
+	
+	public void logInfo(String s, float p0) {
+		if (enabled(info)) {
+			offer(null, s, info, new Object[]{p0});
+		}
+	}
+	
+	public void logWarn(String s, float p0) {
+		if (enabled(warn)) {
+			offer(null, s, warn, new Object[]{p0});
+		}
+	}
+	
+	public void logError(String s, float p0) {
+		if (enabled(error)) {
+			offer(null, s, error, new Object[]{p0});
+		}
+	}
+	
+	public void logFatal(String s, float p0) {
+		if (enabled(fatal)) {
+			offer(null, s, fatal, new Object[]{p0});
+		}
+	}
+	
+	public void logTrace(String s, Object p0) {
+		if (enabled(trace)) {
+			offer(null, s, trace, new Object[]{p0});
+		}
+	}
+	
+	public void logDebug(String s, Object p0) {
+		if (enabled(debug)) {
+			offer(null, s, debug, new Object[]{p0});
+		}
+	}
+	
+	public void logInfo(String s, Object p0) {
+		if (enabled(info)) {
+			offer(null, s, info, new Object[]{p0});
+		}
+	}
+	
+	public void logWarn(String s, Object p0) {
+		if (enabled(warn)) {
+			offer(null, s, warn, new Object[]{p0});
+		}
+	}
+	
+	public void logError(String s, Object p0) {
+		if (enabled(error)) {
+			offer(null, s, error, new Object[]{p0});
+		}
+	}
+	
+	public void logFatal(String s, Object p0) {
+		if (enabled(fatal)) {
+			offer(null, s, fatal, new Object[]{p0});
+		}
+	}
+	
+	// the lambda is computed only if the log is added
+	public <O> void logTrace(@NotNull ToLogMessage<O> toLogMessage, O object) {
+		if (enabled(trace)) {
+			offer(null, toLogMessage, object, trace);
+		}
+	}
+	
+	public <O> void logDebug(@NotNull ToLogMessage<O> toLogMessage, O object) {
+		if (enabled(debug)) {
+			offer(null, toLogMessage, object, debug);
+		}
+	}
+	
+	public <O> void logInfo(@NotNull ToLogMessage<O> toLogMessage, O object) {
+		if (enabled(info)) {
+			offer(null, toLogMessage, object, info);
+		}
+	}
+	
+	public <O> void logWarn(@NotNull ToLogMessage<O> toLogMessage, O object) {
+		if (enabled(warn)) {
+			offer(null, toLogMessage, object, warn);
+		}
+	}
+	
+	public <O> void logError(@NotNull ToLogMessage<O> toLogMessage, O object) {
+		if (enabled(error)) {
+			offer(null, toLogMessage, object, error);
+		}
+	}
+	
+	public <O> void logFatal(@NotNull ToLogMessage<O> toLogMessage, O object) {
+		if (enabled(fatal)) {
+			offer(null, toLogMessage, object, fatal);
+		}
+	}
+	
+	public <O> void logTrace(Marker marker, @NotNull ToLogMessage<O> toLogMessage, O object) {
+		if (enabled(trace)) {
+			offer(marker, toLogMessage, object, trace);
+		}
+	}
+	
+	public <O> void logDebug(Marker marker, @NotNull ToLogMessage<O> toLogMessage, O object) {
+		if (enabled(debug)) {
+			offer(marker, toLogMessage, object, debug);
+		}
+	}
+	
+	public <O> void logInfo(Marker marker, @NotNull ToLogMessage<O> toLogMessage, O object) {
+		if (enabled(info)) {
+			offer(marker, toLogMessage, object, info);
+		}
+	}
+	
+	public <O> void logWarn(Marker marker, @NotNull ToLogMessage<O> toLogMessage, O object) {
+		if (enabled(warn)) {
+			offer(marker, toLogMessage, object, warn);
+		}
+	}
+	
+	public <O> void logError(Marker marker, @NotNull ToLogMessage<O> toLogMessage, O object) {
+		if (enabled(error)) {
+			offer(marker, toLogMessage, object, error);
+		}
+	}
+	
+	public <O> void logFatal(Marker marker, @NotNull ToLogMessage<O> toLogMessage, O object) {
+		if (enabled(fatal)) {
+			offer(marker, toLogMessage, object, fatal);
+		}
+	}
+	
+	// the lambda appends the message to a buffer of the log, that is reused after the log has been written
+	public <O> void logTrace(@NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(trace)) {
+			offer(null, appendMessage, object, trace);
+		}
+	}
+	
+	public <O> void logDebug(@NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(debug)) {
+			offer(null, appendMessage, object, debug);
+		}
+	}
+	
+	public <O> void logInfo(@NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(info)) {
+			offer(null, appendMessage, object, info);
+		}
+	}
+	
+	public <O> void logWarn(@NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(warn)) {
+			offer(null, appendMessage, object, warn);
+		}
+	}
+	
+	public <O> void logError(@NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(error)) {
+			offer(null, appendMessage, object, error);
+		}
+	}
+	
+	public <O> void logFatal(@NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(fatal)) {
+			offer(null, appendMessage, object, fatal);
+		}
+	}
+	
+	public <O> void logTrace(Marker marker, @NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(trace)) {
+			offer(marker, appendMessage, object, trace);
+		}
+	}
+	
+	public <O> void logDebug(Marker marker, @NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(debug)) {
+			offer(marker, appendMessage, object, debug);
+		}
+	}
+	
+	public <O> void logInfo(Marker marker, @NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(info)) {
+			offer(marker, appendMessage, object, info);
+		}
+	}
+	
+	public <O> void logWarn(Marker marker, @NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(warn)) {
+			offer(marker, appendMessage, object, warn);
+		}
+	}
+	
+	public <O> void logError(Marker marker, @NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(error)) {
+			offer(marker, appendMessage, object, error);
+		}
+	}
+	
+	public <O> void logFatal(Marker marker, @NotNull AppendLogMessage<O> appendMessage, O object) {
+		if (enabled(fatal)) {
+			offer(marker, appendMessage, object, fatal);
+		}
+	}
+	
+	// a structured log of trace severity with the name of the category, the builder does nothing if the severity
+	// is disabled
+	@NotNull
+	public LogBuilder atTrace() {
+		return at(trace);
+	}
+	
+	@NotNull
+	public LogBuilder atDebug() {
+		return at(debug);
+	}
+	
+	@NotNull
+	public LogBuilder atInfo() {
+		return at(info);
+	}
+	
+	@NotNull
+	public LogBuilder atWarn() {
+		return at(warn);
+	}
+	
+	@NotNull
+	public LogBuilder atError() {
+		return at(error);
+	}
+	
+	@NotNull
+	public LogBuilder atFatal() {
+		return at(fatal);
+	}
+	
+	@NotNull
+	public LogBuilder at(@NotNull Severity severity) {
+		if (severity.ordinal() >= AsyncLoggerManager.noLog) {
+			throw new IllegalArgumentException("Severity must be less than NO_LOG");
+		}
+		return at(severity.ordinal());
+	}
+	
+	private LogBuilder at(int severity) {
+		return enabled(severity) ? manager.builder(severity, name) : LogBuilder.NOOP;
+	}
+	
+	public void log(String s, @NotNull Severity severity, Object... params) {
+		if (severity.ordinal() >= AsyncLoggerManager.noLog) {
+			throw new IllegalArgumentException("Severity must be less than NO_LOG");
+		}
+		if (enabled(severity.ordinal())) {
+			offer(null, s, severity.ordinal(), params);
+		}
+	}
+	
+	public void log(Marker marker, String s, @NotNull Severity severity, Object... params) {
+		if (severity.ordinal() >= AsyncLoggerManager.noLog) {
+			throw new IllegalArgumentException("Severity must be less than NO_LOG");
+		}
+		if (enabled(severity.ordinal())) {
+			offer(marker, s, severity.ordinal(), params);
+		}
+	}
+	
+	public <O> void log(@NotNull ToLogMessage<O> toLogMessage, O object, @NotNull Severity severity) {
+		if (severity.ordinal() >= AsyncLoggerManager.noLog) {
+			throw new IllegalArgumentException("Severity must be less than NO_LOG");
+		}
+		if (enabled(severity.ordinal())) {
+			offer(null, toLogMessage, object, severity.ordinal());
+		}
+	}
+	
+	public <O> void log(Marker marker, @NotNull ToLogMessage<O> toLogMessage, O object, @NotNull Severity severity) {
+		if (severity.ordinal() >= AsyncLoggerManager.noLog) {
+			throw new IllegalArgumentException("Severity must be less than NO_LOG");
+		}
+		if (enabled(severity.ordinal())) {
+			offer(marker, toLogMessage, object, severity.ordinal());
+		}
+	}
+	
+	public <O> void log(@NotNull AppendLogMessage<O> appendMessage, O object, @NotNull Severity severity) {
+		if (severity.ordinal() >= AsyncLoggerManager.noLog) {
+			throw new IllegalArgumentException("Severity must be less than NO_LOG");
+		}
+		if (enabled(severity.ordinal())) {
+			offer(null, appendMessage, object, severity.ordinal());
+		}
+	}
+	
+	public <O> void log(Marker marker, @NotNull AppendLogMessage<O> appendMessage, O object, @NotNull Severity severity) {
+		if (severity.ordinal() >= AsyncLoggerManager.noLog) {
+			throw new IllegalArgumentException("Severity must be less than NO_LOG");
+		}
+		if (enabled(severity.ordinal())) {
+			offer(marker, appendMessage, object, severity.ordinal());
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package AsyncLogger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// base of the sinks that encode the logs in a file: the logs of a batch are encoded in a reusable direct buffer
+// and written with one FileChannel write, or they are encoded directly in a memory-mapped region of the file.
+abstract class ChannelSink implements LogSink, Closeable {
+	
+	static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+	static final int DEFAULT_REGION_SIZE = 64 * 1024 * 1024;
+	
+	private final FileChannel channel;
+	private final boolean memoryMapped;
+	private final int size;
+	ByteBuffer buffer;
+	// position in the file of the mapped region
+	private long region;
+	// bytes in the file before the buffer
+	private long written;
+	
+	// with memoryMapped the file is mapped in regions of size bytes, otherwise size is the size of the buffer.
+	// A mapped file is longer than its logs until the sink is closed.
+	ChannelSink(@NotNull String fileName, int size, boolean memoryMapped) throws IOException {
+		this(fileName, size, memoryMapped, false);
+	}
+	
+	// the logs are added at the end of the file, or the file is emptied first if truncate
+	ChannelSink(@NotNull String fileName, int size, boolean memoryMapped, boolean truncate) throws IOException {
+		if (size < 1024) {
+			throw new IllegalArgumentException("Size must be >= 1024");
+		}
+		this.size = size;
+		this.memoryMapped = memoryMapped;
+		final StandardOpenOption mode = truncate ? StandardOpenOption.TRUNCATE_EXISTING : StandardOpenOption.APPEND;
+		if (memoryMapped) {
+			this.channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			if (truncate) {
+				channel.truncate(0);
+			}
+			this.region = channel.size();
+			this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, region, size);
+		} else {
+			this.channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					mode);
+			this.buffer = ByteBuffer.allocateDirect(size);
+			this.written = channel.size();
+		}
+	}
+	
+	// encode a log in the buffer
+	abstract void encode(Log log) throws IOException;
+	
+	@Override
+	public void write(Log[] logs, int size) {
+		try {
+			append(logs, size);
+		} catch (IOException e) {
+			e.printStackTrace();
+			if (!memoryMapped) {
+				buffer.clear();
+			}
+		}
+	}
+	
+	// write the logs, a failure is thrown instead of printed
+	final void append(Log[] logs, int size) throws IOException {
+		for (int i = 0; i < size; i++) {
+			encode(logs[i]);
+		}
+		if (!memoryMapped) {
+			flushBuffer();
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		if (memoryMapped) {
+			channel.truncate(region + buffer.position());
+		} else {
+			flushBuffer();
+		}
+		channel.close();
+	}
+	
+	// length of the file with the logs encoded in the buffer and not written yet
+	final long position() {
+		return (memoryMapped ? region : written) + buffer.position();
+	}
+	
+	final void put(char c) throws IOException {
+		ensure(1);
+		buffer.put((byte) c);
+	}
+	
+	// UTF-8 encoding without allocations
+	final void putChars(CharSequence chars) throws IOException {
+		final int length = chars.length();
+		for (int i = 0; i < length; i++) {
+			ensure(4);
+			final char c = chars.charAt(i);
+			if (c < 0x80) {
+				buffer.put((byte) c);
+			} else if (c < 0x800) {
+				buffer.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(chars.charAt(i + 1))) {
+				final int code = Character.toCodePoint(c, chars.charAt(++i));
+				buffer.put((byte) (0xF0 | code >> 18)).put((byte) (0x80 | code >> 12 & 0x3F))
+						.put((byte) (0x80 | code >> 6 & 0x3F)).put((byte) (0x80 | code & 0x3F));
+			} else if (Character.isSurrogate(c)) {
+				buffer.put((byte) '?');
+			} else {
+				buffer.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+			}
+		}
+	}
+	
+	// bytes that can be larger than the buffer or a region
+	final void putBytes(byte[] bytes) throws IOException {
+		int offset = 0;
+		while (offset < bytes.length) {
+			ensure(1);
+			final int length = Math.min(buffer.remaining(), bytes.length - offset);
+			buffer.put(bytes, offset, length);
+			offset += length;
+		}
+	}
+	
+	// make room for bytes in the buffer, writing it or mapping the next region
+	final void ensure(int bytes) throws IOException {
+		if (buffer.remaining() < bytes) {
+			if (memoryMapped) {
+				region += buffer.position();
+				buffer = channel.map(FileChannel.MapMode.READ_WRITE, region, size);
+			} else {
+				flushBuffer();
+			}
+		}
+	}
+	
+	private void flushBuffer() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			written += channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
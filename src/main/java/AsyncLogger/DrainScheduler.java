@@ -0,0 +1,198 @@
+package AsyncLogger;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// a few threads that drain the queues of many AsyncLoggerManager, instead of a Logger thread for each of them.
+// Every manager keeps its waitMax as latency target: its queue is drained when it has a full batch,
+// or when its logs could have waited waitMax milliseconds since the queue was last found empty.
+// The workers park until the nearest deadline, they start with the first manager and they end
+// when no manager is registered any more, as the Logger threads do.
+@SuppressWarnings("unused")
+public final class DrainScheduler {
+	
+	private static final AtomicInteger schedulers = new AtomicInteger();
+	
+	private final Executor executor;
+	private final int workers;
+	// registered tasks, copied on every change
+	private volatile Entry[] entries = new Entry[0];
+	// workers running, guarded by this
+	private int active;
+	// threads of the workers, to wake them up when a manager is killed or added.
+	// A worker that is not parked yet keeps the permit and does not park.
+	private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+	
+	private DrainScheduler(Executor executor, int workers) {
+		if (workers < 1) {
+			throw new IllegalArgumentException("Workers must be > 0");
+		}
+		this.executor = executor;
+		this.workers = workers;
+	}
+	
+	// the workers are platform threads named AsyncLogger-drain-N
+	@NotNull
+	@Contract("_ -> new")
+	public static DrainScheduler create(int workers) {
+		final int scheduler = schedulers.incrementAndGet();
+		final AtomicInteger thread = new AtomicInteger();
+		return withThreadFactory(runnable -> new Thread(runnable, "AsyncLogger-drain-" + scheduler + "-" +
+				thread.incrementAndGet()), workers);
+	}
+	
+	@NotNull
+	@Contract("_, _ -> new")
+	public static DrainScheduler withThreadFactory(@NotNull ThreadFactory factory, int workers) {
+		return new DrainScheduler(runnable -> factory.newThread(runnable).start(), workers);
+	}
+	
+	// each worker is a task of the executor that runs until no manager is registered,
+	// Executors.newVirtualThreadPerTaskExecutor() runs them in virtual threads
+	@NotNull
+	@Contract("_, _ -> new")
+	public static DrainScheduler withExecutor(@NotNull Executor executor, int workers) {
+		return new DrainScheduler(executor, workers);
+	}
+	
+	// managers drained by the scheduler now
+	public int getRegistered() {
+		return entries.length;
+	}
+	
+	// a shard of a manager drained by the workers
+	interface Task {
+		
+		// latency target in milliseconds
+		long waitMillis();
+		
+		// there are logs to write, or the manager is killed
+		boolean ready();
+		
+		// it must be drained now, without waiting for the latency target
+		boolean urgent();
+		
+		// write the logs, false if the manager is killed and the task is finished
+		boolean drainOnce();
+	}
+	
+	private static final class Entry {
+		
+		private final Task task;
+		// only one worker drains a task at once
+		private final AtomicBoolean claimed = new AtomicBoolean();
+		// when the queue was last drained or found empty
+		private volatile long last = System.nanoTime();
+		// the manager is dead, the workers that still see the entry must skip it
+		private boolean finished;
+		
+		Entry(Task task) {
+			this.task = task;
+		}
+	}
+	
+	synchronized void register(Task task) {
+		final Entry[] entries = this.entries;
+		final Entry[] copy = new Entry[entries.length + 1];
+		System.arraycopy(entries, 0, copy, 0, entries.length);
+		copy[entries.length] = new Entry(task);
+		this.entries = copy;
+		while (active < workers) {
+			active++;
+			executor.execute(this::work);
+		}
+		wakeUp();
+	}
+	
+	private synchronized void remove(Entry entry) {
+		final Entry[] entries = this.entries;
+		for (int i = 0; i < entries.length; i++) {
+			if (entries[i] == entry) {
+				final Entry[] copy = new Entry[entries.length - 1];
+				System.arraycopy(entries, 0, copy, 0, i);
+				System.arraycopy(entries, i + 1, copy, i, copy.length - i);
+				this.entries = copy;
+				return;
+			}
+		}
+	}
+	
+	// the workers check the tasks now, a manager has been killed or it is flushed
+	void wakeUp() {
+		for (Thread thread : threads) {
+			LockSupport.unpark(thread);
+		}
+	}
+	
+	// a worker checks the tasks now, a queue has a full batch
+	void wakeOne() {
+		for (Thread thread : threads) {
+			LockSupport.unpark(thread);
+			return;
+		}
+	}
+	
+	private void work() {
+		final Thread thread = Thread.currentThread();
+		threads.add(thread);
+		for (;;) {
+			final Entry[] entries = this.entries;
+			if (entries.length == 0) {
+				synchronized (this) {
+					if (this.entries.length == 0) {
+						threads.remove(thread);
+						active--;
+						return;
+					}
+				}
+				continue;
+			}
+			
+			long park = Long.MAX_VALUE;
+			for (Entry entry : entries) {
+				final Task task = entry.task;
+				final long latency = TimeUnit.MILLISECONDS.toNanos(Math.max(1, task.waitMillis()));
+				final long now = System.nanoTime();
+				if (!task.ready()) {
+					entry.last = now;
+					park = Math.min(park, latency);
+					continue;
+				}
+				
+				final long deadline = entry.last + latency;
+				if (deadline - now > 0 && !task.urgent()) {
+					park = Math.min(park, deadline - now);
+				} else {
+					// another worker is draining it otherwise
+					if (entry.claimed.compareAndSet(false, true)) {
+						try {
+							if (!entry.finished && !task.drainOnce()) {
+								entry.finished = true;
+								remove(entry);
+							}
+						} catch (RuntimeException e) {
+							e.printStackTrace();
+						} finally {
+							entry.last = System.nanoTime();
+							entry.claimed.set(false);
+						}
+					}
+					park = Math.min(park, latency);
+				}
+			}
+			
+			if (park != Long.MAX_VALUE) {
+				LockSupport.parkNanos(this, park);
+			}
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package AsyncLogger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+// the Logger thread writes the logs in a file without log4j, each log is a line
+// "yyyy-MM-dd HH:mm:ss.SSS LEVEL category [marker] message" encoded in UTF-8.
+// The logs of a batch are encoded in a reusable direct buffer and written with one FileChannel write,
+// or they are encoded directly in a memory-mapped region of the file.
+@SuppressWarnings("unused")
+public class FileSink extends ChannelSink {
+	
+	private static final byte[][] levels = new byte[AsyncLoggerManager.noLog][];
+	
+	static {
+		for (Severity severity : Severity.values()) {
+			if (severity != Severity.NO_LOG) {
+				levels[severity.ordinal()] = String.format("%-5s", severity).getBytes();
+			}
+		}
+	}
+	
+	// reusable buffer to format the messages
+	private final StringBuilder builder = new StringBuilder(256);
+	private final ZoneId zone = ZoneId.systemDefault();
+	// "yyyy-MM-dd HH:mm:ss" of the last second written
+	private final byte[] date = new byte[19];
+	private long second = Long.MIN_VALUE;
+	
+	public FileSink(@NotNull String fileName) throws IOException {
+		this(fileName, DEFAULT_BUFFER_SIZE, false);
+	}
+	
+	// a buffer of 256 KB, or regions of 64 MB if the file is memory-mapped
+	public FileSink(@NotNull String fileName, boolean memoryMapped) throws IOException {
+		this(fileName, memoryMapped ? DEFAULT_REGION_SIZE : DEFAULT_BUFFER_SIZE, memoryMapped);
+	}
+	
+	// with memoryMapped the file is mapped in regions of size bytes, otherwise size is the size of the buffer.
+	// A mapped file is longer than its logs until the sink is closed.
+	public FileSink(@NotNull String fileName, int size, boolean memoryMapped) throws IOException {
+		super(fileName, size, memoryMapped);
+	}
+	
+	@Override
+	void encode(Log log) throws IOException {
+		final long millis = log.timestamp != 0 ? log.timestamp / 1_000_000L : System.currentTimeMillis();
+		if (millis / 1000 != second) {
+			setDate(millis / 1000);
+		}
+		ensure(date.length + 32);
+		buffer.put(date);
+		final int ms = (int) (millis % 1000);
+		buffer.put((byte) '.').put(digit(ms / 100)).put(digit(ms / 10 % 10)).put(digit(ms % 10)).put((byte) ' ');
+		buffer.put(levels[log.severity]).put((byte) ' ');
+		if (log.category != null) {
+			putChars(log.category);
+			put(' ');
+		}
+		if (log.marker != null) {
+			put('[');
+			putChars(log.marker.getName());
+			put(']');
+			put(' ');
+		}
+		builder.setLength(0);
+		MessageFormatter.format(builder, log);
+		putChars(builder);
+		put('\n');
+	}
+	
+	private void setDate(long epochSecond) {
+		final LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), zone);
+		putNumber(time.getYear(), 0, 4);
+		date[4] = '-';
+		putNumber(time.getMonthValue(), 5, 2);
+		date[7] = '-';
+		putNumber(time.getDayOfMonth(), 8, 2);
+		date[10] = ' ';
+		putNumber(time.getHour(), 11, 2);
+		date[13] = ':';
+		putNumber(time.getMinute(), 14, 2);
+		date[16] = ':';
+		putNumber(time.getSecond(), 17, 2);
+		second = epochSecond;
+	}
+	
+	private void putNumber(int value, int offset, int digits) {
+		for (int i = offset + digits - 1; i >= offset; i--) {
+			date[i] = digit(value % 10);
+			value /= 10;
+		}
+	}
+	
+	private static byte digit(int value) {
+		return (byte) ('0' + value);
+	}
+}
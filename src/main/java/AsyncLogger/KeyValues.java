@@ -0,0 +1,185 @@
+package AsyncLogger;
+
+import java.util.Arrays;
+
+// keys and values of a structured log, kept in arrays that grow and are reused: a LogBuilder fills it on the thread
+// that logs, then it is given to the Log and the Logger thread encodes it as logfmt or JSON.
+// The primitive values are not boxed, a double is kept as its bits.
+final class KeyValues {
+	
+	static final byte LONG = 0;
+	static final byte DOUBLE = 1;
+	static final byte BOOLEAN = 2;
+	static final byte OBJECT = 3;
+	
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	
+	String[] keys = new String[8];
+	byte[] types = new byte[8];
+	long[] primitives = new long[8];
+	Object[] objects = new Object[8];
+	int size;
+	// the builder that created the arrays, they go back to it when a log that is not pooled has been written
+	final LogBuilder owner;
+	// next of the arrays given back to the owner
+	KeyValues next;
+	
+	KeyValues() {
+		this(null);
+	}
+	
+	KeyValues(LogBuilder owner) {
+		this.owner = owner;
+	}
+	
+	private int next(String key, byte type) {
+		if (size == keys.length) {
+			final int length = size << 1;
+			keys = Arrays.copyOf(keys, length);
+			types = Arrays.copyOf(types, length);
+			primitives = Arrays.copyOf(primitives, length);
+			objects = Arrays.copyOf(objects, length);
+		}
+		keys[size] = key;
+		types[size] = type;
+		return size++;
+	}
+	
+	void add(String key, long value) {
+		primitives[next(key, LONG)] = value;
+	}
+	
+	void add(String key, double value) {
+		primitives[next(key, DOUBLE)] = Double.doubleToRawLongBits(value);
+	}
+	
+	void add(String key, boolean value) {
+		primitives[next(key, BOOLEAN)] = value ? 1 : 0;
+	}
+	
+	void add(String key, Object value) {
+		objects[next(key, OBJECT)] = value;
+	}
+	
+	// the value of the pair, boxed if it is primitive
+	Object value(int i) {
+		switch (types[i]) {
+			case LONG:
+				return primitives[i];
+			case DOUBLE:
+				return Double.longBitsToDouble(primitives[i]);
+			case BOOLEAN:
+				return primitives[i] != 0;
+			default:
+				return objects[i];
+		}
+	}
+	
+	// the arrays are kept, only the references are removed
+	void clear() {
+		for (int i = 0; i < size; i++) {
+			keys[i] = null;
+			objects[i] = null;
+		}
+		size = 0;
+	}
+	
+	// key=value separated by spaces, a value with spaces, quotes or '=' is quoted
+	void formatLogfmt(StringBuilder builder) {
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				builder.append(' ');
+			}
+			builder.append(keys[i]).append('=');
+			if (types[i] != OBJECT) {
+				appendPrimitive(builder, i);
+			} else {
+				final int start = builder.length();
+				builder.append(objects[i]);
+				if (needsQuotes(builder, start)) {
+					final String value = builder.substring(start);
+					builder.setLength(start);
+					builder.append('"');
+					escape(builder, value);
+					builder.append('"');
+				}
+			}
+		}
+	}
+	
+	// a JSON object, the numbers and the booleans are not quoted
+	void formatJson(StringBuilder builder) {
+		builder.append('{');
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				builder.append(',');
+			}
+			builder.append('"');
+			escape(builder, keys[i]);
+			builder.append("\":");
+			if (types[i] == DOUBLE && !Double.isFinite(Double.longBitsToDouble(primitives[i]))) {
+				builder.append('"');
+				appendPrimitive(builder, i);
+				builder.append('"');
+			} else if (types[i] != OBJECT) {
+				appendPrimitive(builder, i);
+			} else if (objects[i] == null) {
+				builder.append("null");
+			} else {
+				builder.append('"');
+				escape(builder, objects[i].toString());
+				builder.append('"');
+			}
+		}
+		builder.append('}');
+	}
+	
+	private void appendPrimitive(StringBuilder builder, int i) {
+		switch (types[i]) {
+			case LONG:
+				builder.append(primitives[i]);
+				break;
+			case DOUBLE:
+				builder.append(Double.longBitsToDouble(primitives[i]));
+				break;
+			default:
+				builder.append(primitives[i] != 0);
+		}
+	}
+	
+	private static boolean needsQuotes(StringBuilder builder, int start) {
+		if (start == builder.length()) {
+			return true;
+		}
+		for (int i = start; i < builder.length(); i++) {
+			final char c = builder.charAt(i);
+			if (c <= ' ' || c == '"' || c == '=' || c == '\\') {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private static void escape(StringBuilder builder, String value) {
+		if (value == null) {
+			builder.append("null");
+			return;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				builder.append('\\').append(c);
+			} else if (c == '\n') {
+				builder.append("\\n");
+			} else if (c == '\r') {
+				builder.append("\\r");
+			} else if (c == '\t') {
+				builder.append("\\t");
+			} else if (c < ' ') {
+				builder.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 15]);
+			} else {
+				builder.append(c);
+			}
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package AsyncLogger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// a queue for each severity, so that under a flood of low severity logs the errors are not behind all of them.
+// Each drain takes the logs of one lane: the highest severity that has logs, unless a lower lane has logs
+// that have not been drained for more than the budget, which bounds how long a lane can wait behind the others.
+// Every log takes a sequence shared by all the lanes of the manager, so a sink can put them back in order.
+class LaneLogQueue implements LogQueue {
+	
+	private final LogQueue[] lanes;
+	private final AtomicLong sequence;
+	// nanoseconds that a lane with logs can wait behind the higher lanes
+	private final long budget;
+	// when each lane was last drained or found empty, used only by the Logger thread
+	private final long[] served;
+	
+	LaneLogQueue(LogQueue[] lanes, AtomicLong sequence, long budget) {
+		this.lanes = lanes;
+		this.sequence = sequence;
+		this.budget = budget;
+		this.served = new long[lanes.length];
+		final long now = System.nanoTime();
+		for (int i = 0; i < served.length; i++) {
+			served[i] = now;
+		}
+	}
+	
+	@Override
+	public boolean offer(Log log) {
+		log.sequence = sequence.incrementAndGet();
+		return lanes[log.severity].offer(log);
+	}
+	
+	@Override
+	public Log poll() {
+		final int lane = next();
+		return lane >= 0 ? lanes[lane].poll() : null;
+	}
+	
+	@Override
+	public int drain(Log[] batch, int max) {
+		final int lane = next();
+		return lane >= 0 ? lanes[lane].drain(batch, max) : 0;
+	}
+	
+	// the lane that is drained now, -1 if all of them are empty
+	private int next() {
+		final long now = System.nanoTime();
+		int next = -1;
+		// the lane that has waited most among the ones over the budget
+		int late = -1;
+		for (int i = lanes.length - 1; i >= 0; i--) {
+			if (lanes[i].isEmpty()) {
+				served[i] = now;
+			} else {
+				if (next == -1) {
+					next = i;
+				}
+				if (now - served[i] > budget && (late == -1 || served[i] - served[late] < 0)) {
+					late = i;
+				}
+			}
+		}
+		if (late >= 0) {
+			next = late;
+		}
+		if (next >= 0) {
+			served[next] = now;
+		}
+		return next;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		for (LogQueue lane : lanes) {
+			if (!lane.isEmpty()) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public long evicted() {
+		long evicted = 0;
+		for (LogQueue lane : lanes) {
+			evicted += lane.evicted();
+		}
+		return evicted;
+	}
+	
+	@Override
+	public int size() {
+		int size = 0;
+		for (LogQueue lane : lanes) {
+			size += lane.size();
+		}
+		return size;
+	}
+}
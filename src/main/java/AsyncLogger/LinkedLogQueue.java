@@ -0,0 +1,39 @@
+package AsyncLogger;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// unbounded queue, a new node is allocated for each log
+class LinkedLogQueue implements LogQueue {
+	
+	private final ConcurrentLinkedQueue<Log> queue = new ConcurrentLinkedQueue<>();
+	
+	@Override
+	public boolean offer(Log log) {
+		return queue.offer(log);
+	}
+	
+	@Override
+	public Log poll() {
+		return queue.poll();
+	}
+	
+	@Override
+	public int drain(Log[] batch, int max) {
+		int size = 0;
+		Log log;
+		while (size < max && (log = queue.poll()) != null) {
+			batch[size++] = log;
+		}
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return queue.isEmpty();
+	}
+	
+	@Override
+	public int size() {
+		return queue.size();
+	}
+}
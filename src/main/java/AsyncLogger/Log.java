@@ -7,21 +7,56 @@ import org.jetbrains.annotations.NotNull;
 @SuppressWarnings("unused")
 public class Log {
 	Marker marker;
+	// name of the category of a CategoryLogger, null for the logs of the manager
+	String category;
 	String message;
 	int severity;
 	Object[] objects;
+	// parameter of primitive type, a double is kept as its bits
+	long primitive;
+	// if the message has a parameter of primitive type, and if it is a double
+	boolean hasPrimitive;
+	boolean doublePrimitive;
+	// nanoseconds from the epoch when the log was added to the queue, 0 if it was not taken
+	long timestamp;
+	// order of the log among the logs of different threads, set by the queues that need it
+	long sequence;
+	// estimated bytes retained by the log while it is queued, with a memory budget
+	long bytes;
+	// lambda and object of a message computed by the Logger thread
+	ToLogMessage<Object> toLogMessage;
+	AppendLogMessage<Object> appendMessage;
+	Object object;
+	// message appended by an AppendLogMessage in the buffer of the log, null if the message is a String
+	StringBuilder text;
+	// buffer lent by the LogBuilder of the thread for a message appended by it, if the log is not pooled
+	TextBuffer textBuffer;
+	// buffer of the appended messages, a log of a pool keeps it unless it has grown too much
+	private StringBuilder buffer;
+	static final int MAX_BUFFER = 8 * 1024;
+	// pairs of a LogBuilder, empty or null if there are none. A log of a pool keeps the arrays.
+	KeyValues keyValues;
+	// if the log belongs to a pool and has to be given back after it has been logged
+	final boolean pooled;
+	
+	// empty log of a pool
+	Log() {
+		this.pooled = true;
+	}
 	
 	Log(String message, int severity) {
 		this.message = message;
 		this.severity = severity;
 		this.marker = null;
 		this.objects = null;
+		this.pooled = false;
 	}
 	
 	Log(String message, Marker marker) {
 		this.message = message;
 		this.marker = marker;
 		this.objects = null;
+		this.pooled = false;
 	}
 	
 	Log(String message, int severity, Object... objects) {
@@ -29,6 +64,7 @@ public class Log {
 		this.severity = severity;
 		this.marker = null;
 		this.objects = objects;
+		this.pooled = false;
 	}
 	
 	Log(Marker marker, String message, int severity) {
@@ -36,12 +72,14 @@ public class Log {
 		this.message = message;
 		this.severity = severity;
 		this.objects = null;
+		this.pooled = false;
 	}
 	
 	Log(String message, Marker marker, Object[] objects) {
 		this.message = message;
 		this.marker = marker;
 		this.objects = objects;
+		this.pooled = false;
 	}
 	
 	Log(Marker marker, String message, int severity, Object[] objects) {
@@ -49,6 +87,98 @@ public class Log {
 		this.message = message;
 		this.severity = severity;
 		this.objects = objects;
+		this.pooled = false;
+	}
+	
+	// fill a log of a pool
+	Log set(Marker marker, String message, int severity, Object[] objects) {
+		this.marker = marker;
+		this.category = null;
+		this.message = message;
+		this.severity = severity;
+		this.objects = objects;
+		this.hasPrimitive = false;
+		this.toLogMessage = null;
+		this.appendMessage = null;
+		this.object = null;
+		this.text = null;
+		return this;
+	}
+	
+	// add the parameter of primitive type
+	Log withPrimitive(long primitive) {
+		this.hasPrimitive = true;
+		this.doublePrimitive = false;
+		this.primitive = primitive;
+		return this;
+	}
+	
+	Log withPrimitive(double primitive) {
+		this.hasPrimitive = true;
+		this.doublePrimitive = true;
+		this.primitive = Double.doubleToRawLongBits(primitive);
+		return this;
+	}
+	
+	// the message will be computed by the Logger thread
+	@SuppressWarnings("unchecked")
+	<O> Log defer(ToLogMessage<O> toLogMessage, O object) {
+		this.toLogMessage = (ToLogMessage<Object>) toLogMessage;
+		this.object = object;
+		return this;
+	}
+	
+	// the message is appended to the buffer by the Logger thread
+	@SuppressWarnings("unchecked")
+	<O> Log defer(AppendLogMessage<O> appendMessage, O object) {
+		this.appendMessage = (AppendLogMessage<Object>) appendMessage;
+		this.object = object;
+		return this;
+	}
+	
+	// the empty buffer for the message, the message of the log from now on
+	StringBuilder text() {
+		if (buffer == null) {
+			buffer = new StringBuilder(128);
+		} else {
+			buffer.setLength(0);
+		}
+		text = buffer;
+		return buffer;
+	}
+	
+	// the empty buffer for the message, a log that is not pooled takes the given one, that the caller reuses
+	// after the log has been written
+	StringBuilder text(StringBuilder shared) {
+		if (pooled) {
+			return text();
+		}
+		shared.setLength(0);
+		text = shared;
+		return shared;
+	}
+	
+	// remove the references of a log of a pool
+	void clear() {
+		this.marker = null;
+		this.category = null;
+		this.message = null;
+		this.objects = null;
+		this.toLogMessage = null;
+		this.appendMessage = null;
+		this.object = null;
+		this.text = null;
+		if (buffer != null && buffer.capacity() > MAX_BUFFER) {
+			buffer = null;
+		}
+		this.hasPrimitive = false;
+		if (keyValues != null) {
+			keyValues.clear();
+		}
+	}
+	
+	boolean hasKeyValues() {
+		return keyValues != null && keyValues.size > 0;
 	}
 	
 	Log addSeverity(int severity) {
@@ -56,6 +186,87 @@ public class Log {
 		return this;
 	}
 	
+	public Marker getMarker() {
+		return marker;
+	}
+	
+	// name of the category, null if the log was added by the manager
+	public String getCategory() {
+		return category;
+	}
+	
+	// the message with its placeholders, a deferred message has already been computed by the Logger thread.
+	// A message of an AppendLogMessage is copied in a new String, formatTo doesn't copy it.
+	public String getMessage() {
+		return text != null ? text.toString() : message;
+	}
+	
+	// append the message with the parameters written in its placeholders and the key-value pairs
+	public void formatTo(StringBuilder builder) {
+		MessageFormatter.format(builder, this);
+	}
+	
+	public Severity getSeverity() {
+		return Severity.getNewSeverity(severity);
+	}
+	
+	// parameters of the placeholders {} of the message, null if there are none.
+	// The parameter of primitive type is boxed in a new array.
+	public Object[] getParameters() {
+		if (hasPrimitive) {
+			return new Object[]{MessageFormatter.primitive(this)};
+		}
+		return objects;
+	}
+	
+	// number of the key-value pairs of a LogBuilder
+	public int getKeyValueCount() {
+		return keyValues != null ? keyValues.size : 0;
+	}
+	
+	public String getKey(int i) {
+		checkPair(i);
+		return keyValues.keys[i];
+	}
+	
+	// the value of the pair, a value of primitive type is boxed
+	public Object getValue(int i) {
+		checkPair(i);
+		return keyValues.value(i);
+	}
+	
+	private void checkPair(int i) {
+		if (i < 0 || i >= getKeyValueCount()) {
+			throw new IndexOutOfBoundsException("Pair " + i + " of " + getKeyValueCount());
+		}
+	}
+	
+	// append the pairs as logfmt: key=value separated by spaces
+	public void formatKeyValuesTo(StringBuilder builder) {
+		if (hasKeyValues()) {
+			keyValues.formatLogfmt(builder);
+		}
+	}
+	
+	// append the pairs as a JSON object, {} if there are none
+	public void formatKeyValuesAsJsonTo(StringBuilder builder) {
+		if (hasKeyValues()) {
+			keyValues.formatJson(builder);
+		} else {
+			builder.append("{}");
+		}
+	}
+	
+	// nanoseconds from the epoch when the log was added to the queue, 0 if the time was not taken
+	public long getTimestamp() {
+		return timestamp;
+	}
+	
+	// order in which the logs were added to a manager with priority lanes, the sinks can sort the logs with it
+	public long getSequence() {
+		return sequence;
+	}
+	
 	@NotNull
 	@Contract("_, _ -> new")
 	public static Log newLog(Marker marker, String message) {
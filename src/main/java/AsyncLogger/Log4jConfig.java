@@ -0,0 +1,208 @@
+package AsyncLogger;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.appender.ConsoleAppender;
+import org.apache.logging.log4j.core.async.AsyncLoggerContext;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.builder.api.AppenderComponentBuilder;
+import org.apache.logging.log4j.core.config.builder.api.ConfigurationBuilder;
+import org.apache.logging.log4j.core.config.builder.api.ConfigurationBuilderFactory;
+import org.apache.logging.log4j.core.config.builder.api.RootLoggerComponentBuilder;
+import org.apache.logging.log4j.core.config.builder.impl.BuiltConfiguration;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// a log4j configuration built in memory with the ConfigurationBuilder of log4j, instead of a log4j2.properties
+// on the classpath. Every configuration has its own AsyncLoggerContext, that is created without the global
+// Log4jContextSelector, so more configurations with different appenders can be used in the same JVM.
+// It is given to AsyncLoggerManager.Builder.log4j(Log4jConfig), the context is started by the first manager.
+@SuppressWarnings("unused")
+public final class Log4jConfig {
+	
+	private final String name;
+	private final Severity severity;
+	private final List<Appender> appenders;
+	private final Map<String, Severity> loggers;
+	private final boolean immediateFlush;
+	private final int bufferSize;
+	// created when the first manager takes the logger, guarded by this
+	private AsyncLoggerContext context;
+	
+	private Log4jConfig(@NotNull Builder builder) {
+		this.name = builder.name;
+		this.severity = builder.severity;
+		this.appenders = new ArrayList<>(builder.appenders);
+		this.loggers = new LinkedHashMap<>(builder.loggers);
+		this.immediateFlush = builder.immediateFlush;
+		this.bufferSize = builder.bufferSize;
+	}
+	
+	@NotNull
+	@Contract("_ -> new")
+	public static Builder builder(@NotNull String name) {
+		return new Builder(name);
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	// an appender of the configuration
+	private static final class Appender {
+		
+		private final String type;
+		private final String name;
+		private final String pattern;
+		// null for the console
+		private final String fileName;
+		
+		Appender(String type, String name, String pattern, String fileName) {
+			this.type = type;
+			this.name = name;
+			this.pattern = pattern;
+			this.fileName = fileName;
+		}
+	}
+	
+	public static final class Builder {
+		
+		private final String name;
+		private Severity severity = Severity.INFO;
+		private final List<Appender> appenders = new ArrayList<>();
+		private final Map<String, Severity> loggers = new LinkedHashMap<>();
+		private boolean immediateFlush = true;
+		private int bufferSize = 8 * 1024;
+		
+		private Builder(@NotNull String name) {
+			this.name = name;
+		}
+		
+		// level of the root logger
+		public Builder severity(@NotNull Severity severity) {
+			this.severity = severity;
+			return this;
+		}
+		
+		// an appender on the standard output with a PatternLayout
+		public Builder console(@NotNull String name, @NotNull String pattern) {
+			return appender(new Appender("Console", name, pattern, null));
+		}
+		
+		// an appender on a RandomAccessFile with a PatternLayout
+		public Builder randomAccessFile(@NotNull String name, @NotNull String fileName, @NotNull String pattern) {
+			return appender(new Appender("RandomAccessFile", name, pattern, fileName));
+		}
+		
+		// an appender on a FileOutputStream with a PatternLayout, the buffer is used only if immediateFlush is off
+		public Builder file(@NotNull String name, @NotNull String fileName, @NotNull String pattern) {
+			return appender(new Appender("File", name, pattern, fileName));
+		}
+		
+		private Builder appender(Appender appender) {
+			for (Appender added : appenders) {
+				if (added.name.equals(appender.name)) {
+					throw new IllegalArgumentException("Appender " + appender.name + " already added");
+				}
+			}
+			appenders.add(appender);
+			return this;
+		}
+		
+		// level of a log4j logger. The logs of a category of AsyncLoggerManager with the same name use its appenders,
+		// but they are filtered only by the severity of the category
+		public Builder logger(@NotNull String name, @NotNull Severity severity) {
+			loggers.put(name, severity);
+			return this;
+		}
+		
+		// with false the file appenders write when their buffer is full or at the end of a batch of log4j,
+		// true by default
+		public Builder immediateFlush(boolean immediateFlush) {
+			this.immediateFlush = immediateFlush;
+			return this;
+		}
+		
+		// bytes of the buffer of the file appenders
+		public Builder bufferSize(int bufferSize) {
+			if (bufferSize < 1) {
+				throw new IllegalArgumentException("Buffer size must be > 0");
+			}
+			this.bufferSize = bufferSize;
+			return this;
+		}
+		
+		@NotNull
+		@Contract(" -> new")
+		public Log4jConfig build() {
+			if (appenders.isEmpty()) {
+				throw new IllegalArgumentException("At least an appender is needed");
+			}
+			return new Log4jConfig(this);
+		}
+	}
+	
+	private static Level level(Severity severity) {
+		return severity == Severity.NO_LOG ? Level.OFF : Level.valueOf(severity.toString());
+	}
+	
+	// the configuration of log4j, no file is read or written
+	Configuration configuration() {
+		final ConfigurationBuilder<BuiltConfiguration> builder =
+				ConfigurationBuilderFactory.newConfigurationBuilder();
+		builder.setConfigurationName(name);
+		builder.setStatusLevel(Level.WARN);
+		final RootLoggerComponentBuilder root = builder.newRootLogger(level(severity));
+		for (Appender appender : appenders) {
+			final AppenderComponentBuilder component = builder.newAppender(appender.name, appender.type)
+					.add(builder.newLayout("PatternLayout").addAttribute("pattern", appender.pattern));
+			if (appender.fileName == null) {
+				component.addAttribute("target", ConsoleAppender.Target.SYSTEM_OUT);
+			} else {
+				component.addAttribute("fileName", appender.fileName)
+						.addAttribute("immediateFlush", immediateFlush);
+				// a File appender uses a buffer only with bufferedIo, log4j warns about a size without it
+				if (!"File".equals(appender.type)) {
+					component.addAttribute("bufferSize", bufferSize);
+				} else {
+					component.addAttribute("bufferedIo", !immediateFlush)
+							.addAttribute("bufferSize", immediateFlush ? 0 : bufferSize);
+				}
+			}
+			builder.add(component);
+			root.add(builder.newAppenderRef(appender.name));
+		}
+		builder.add(root);
+		for (Map.Entry<String, Severity> logger : loggers.entrySet()) {
+			builder.add(builder.newLogger(logger.getKey(), level(logger.getValue())));
+		}
+		return builder.build(false);
+	}
+	
+	// the context of this configuration, started the first time
+	synchronized AsyncLoggerContext context() {
+		if (context == null) {
+			context = new AsyncLoggerContext(name);
+			context.start(configuration());
+		}
+		return context;
+	}
+	
+	// the root logger of the context
+	org.apache.logging.log4j.core.async.AsyncLogger logger() {
+		return (org.apache.logging.log4j.core.async.AsyncLogger) context().getLogger(LogManager.ROOT_LOGGER_NAME);
+	}
+	
+	// stop the context and close its appenders, after the managers that use it have been killed
+	public synchronized void stop() {
+		if (context != null) {
+			context.stop();
+			context = null;
+		}
+	}
+}
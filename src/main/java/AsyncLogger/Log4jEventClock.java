@@ -0,0 +1,41 @@
+package AsyncLogger;
+
+import org.apache.logging.log4j.core.time.MutableInstant;
+import org.apache.logging.log4j.core.time.PreciseClock;
+
+// log4j clock that gives to each log event the time taken when the log was added to the queue.
+// The Logger thread sets the time before writing a log, every other thread gets the system clock.
+// It is used by log4j only if the property log4j.Clock is set before the first AsyncLogger is created,
+// see AsyncLoggerManager.Builder.log4jClock(boolean).
+public final class Log4jEventClock implements PreciseClock {
+	
+	private static final ThreadLocal<long[]> eventTime = ThreadLocal.withInitial(() -> new long[1]);
+	
+	// set this clock as log4j.Clock, unless the property already has a value
+	static void install() {
+		if (System.getProperty("log4j.Clock") == null) {
+			System.setProperty("log4j.Clock", Log4jEventClock.class.getName());
+		}
+	}
+	
+	// time of the log that the current thread is writing, 0 to use the system clock
+	static void set(long nanos) {
+		eventTime.get()[0] = nanos;
+	}
+	
+	@Override
+	public long currentTimeMillis() {
+		final long nanos = eventTime.get()[0];
+		return nanos != 0 ? nanos / 1_000_000L : System.currentTimeMillis();
+	}
+	
+	@Override
+	public void init(MutableInstant mutableInstant) {
+		final long nanos = eventTime.get()[0];
+		if (nanos != 0) {
+			mutableInstant.initFromEpochMilli(nanos / 1_000_000L, (int) (nanos % 1_000_000L));
+		} else {
+			mutableInstant.initFromEpochMilli(System.currentTimeMillis(), 0);
+		}
+	}
+}
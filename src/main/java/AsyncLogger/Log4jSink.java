@@ -0,0 +1,83 @@
+package AsyncLogger;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.async.AsyncLogger;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// the logs are given to an Apache AsyncLogger
+class Log4jSink implements LogSink {
+	
+	// static array of functional interface lambdas for logging
+	private static final LogWithSeverity[] toLog = new LogWithSeverity[AsyncLoggerManager.noLog];
+	
+	// static filling of the array of lambdas
+	static {
+		toLog[AsyncLoggerManager.trace] = (logger, marker, message, thrown) -> logger.trace(marker, message, thrown);
+		toLog[AsyncLoggerManager.debug] = (logger, marker, message, thrown) -> logger.debug(marker, message, thrown);
+		toLog[AsyncLoggerManager.info] = (logger, marker, message, thrown) -> logger.info(marker, message, thrown);
+		toLog[AsyncLoggerManager.warn] = (logger, marker, message, thrown) -> logger.warn(marker, message, thrown);
+		toLog[AsyncLoggerManager.error] = (logger, marker, message, thrown) -> logger.error(marker, message, thrown);
+		toLog[AsyncLoggerManager.fatal] = (logger, marker, message, thrown) -> logger.fatal(marker, message, thrown);
+	}
+	
+	private static final String FQCN = Log4jSink.class.getName();
+	// levels of log4j by severity
+	private static final Level[] levels = new Level[AsyncLoggerManager.noLog];
+	
+	static {
+		for (int i = 0; i < levels.length; i++) {
+			levels[i] = Level.valueOf(Severity.getNewSeverity(i).toString());
+		}
+	}
+	
+	private final AsyncLogger logger;
+	// log4j loggers of the categories, used by one Logger thread at a time
+	private final Map<String, AsyncLogger> categories = new HashMap<>();
+	// reusable buffer to format the messages with parameters, log4j copies it in its event
+	private final StringBuilder builder = new StringBuilder(256);
+	
+	Log4jSink(AsyncLogger logger) {
+		this.logger = logger;
+	}
+	
+	// the messages are formatted with the cached templates, so log4j does not parse them again.
+	// The time of each log is given to log4j through Log4jEventClock.
+	@Override
+	public void write(Log[] logs, int size) {
+		for (int i = 0; i < size; i++) {
+			final Log log = logs[i];
+			final CharSequence message;
+			if (log.hasPrimitive || log.objects != null && log.objects.length > 0 || log.hasKeyValues()) {
+				builder.setLength(0);
+				MessageFormatter.formatMessage(builder, log);
+				message = builder;
+			} else {
+				message = log.text != null ? log.text : log.message;
+			}
+			Log4jEventClock.set(log.timestamp);
+			if (log.category == null) {
+				toLog[log.severity].log(logger, log.marker, message, MessageFormatter.thrown(log));
+			} else {
+				// the severity of the category has already been checked by the manager, the level of the log4j
+				// logger would discard again the logs of a category with a lower severity than its configuration
+				final AsyncLogger category = logger(log.category);
+				category.logMessage(FQCN, levels[log.severity], log.marker,
+						category.getMessageFactory().newMessage(message), MessageFormatter.thrown(log));
+			}
+		}
+		Log4jEventClock.set(0);
+	}
+	
+	// the log4j logger with the name of the category in the context of the root logger,
+	// so that its appenders and filters apply too
+	private AsyncLogger logger(String category) {
+		AsyncLogger found = categories.get(category);
+		if (found == null) {
+			found = (AsyncLogger) logger.getContext().getLogger(category);
+			categories.put(category, found);
+		}
+		return found;
+	}
+}
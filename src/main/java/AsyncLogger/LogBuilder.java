@@ -0,0 +1,169 @@
+package AsyncLogger;
+
+import org.apache.logging.log4j.Marker;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReference;
+
+// a structured log built with key-value pairs, returned by atInfo() and the other methods at... of
+// AsyncLoggerManager and CategoryLogger: manager.atInfo().kv("user", id).kv("ms", elapsed).log("done").
+// Each thread reuses the same builder, so it must end with log() before the thread starts another one.
+// The pairs are written in reusable arrays and given to the log, the primitive values are not boxed, and
+// the Logger thread writes them after the message as logfmt (user=42 ms=3). With recycled logs the arrays of
+// the pool are reused, without them the Logger thread gives the arrays back to the builder after the sink has
+// written the log, so a builder doesn't allocate them again. If the severity is disabled the builder does nothing.
+// The manager is weakly referenced, the builder kept by a thread must not keep a killed manager reachable.
+// The builder of a thread also lends the buffers of the messages appended by the thread to the logs that are not
+// pooled, in the same way as the arrays of the pairs.
+@SuppressWarnings("unused")
+public final class LogBuilder {
+	
+	// returned when the severity is disabled
+	static final LogBuilder NOOP = new LogBuilder(null);
+	
+	private final WeakReference<AsyncLoggerManager> manager;
+	private int severity;
+	private Marker marker;
+	private String category;
+	private KeyValues keyValues;
+	// arrays given back by the Logger threads, a stack pushed by any thread and taken whole by the thread of the
+	// builder
+	private final AtomicReference<KeyValues> returned = new AtomicReference<>();
+	// arrays taken from returned, used only by the thread of the builder
+	private KeyValues spare;
+	// the same for the buffers of the appended messages
+	private final AtomicReference<TextBuffer> returnedTexts = new AtomicReference<>();
+	private TextBuffer spareText;
+	
+	LogBuilder(AsyncLoggerManager manager) {
+		this.manager = manager != null ? new WeakReference<>(manager) : null;
+		this.keyValues = manager != null ? new KeyValues(this) : null;
+	}
+	
+	// the arrays of a log that is not pooled, after it has been written or dropped
+	void giveBack(KeyValues keyValues) {
+		keyValues.clear();
+		KeyValues head;
+		do {
+			head = returned.get();
+			keyValues.next = head;
+		} while (!returned.compareAndSet(head, keyValues));
+	}
+	
+	// the buffer of a log that is not pooled, after it has been written or dropped. A buffer that has grown too
+	// much is left to the garbage collector.
+	void giveBack(TextBuffer buffer) {
+		if (buffer.text.capacity() > Log.MAX_BUFFER) {
+			return;
+		}
+		TextBuffer head;
+		do {
+			head = returnedTexts.get();
+			buffer.next = head;
+		} while (!returnedTexts.compareAndSet(head, buffer));
+	}
+	
+	// a buffer for a message appended by the thread of the builder
+	TextBuffer textBuffer() {
+		if (spareText == null) {
+			spareText = returnedTexts.getAndSet(null);
+			if (spareText == null) {
+				return new TextBuffer(this);
+			}
+		}
+		final TextBuffer next = spareText;
+		spareText = next.next;
+		next.next = null;
+		return next;
+	}
+	
+	private KeyValues spare() {
+		if (spare == null) {
+			spare = returned.getAndSet(null);
+			if (spare == null) {
+				return new KeyValues(this);
+			}
+		}
+		final KeyValues next = spare;
+		spare = next.next;
+		next.next = null;
+		return next;
+	}
+	
+	// the builder of the thread ready for a new log
+	LogBuilder start(int severity, String category) {
+		keyValues.clear();
+		this.severity = severity;
+		this.marker = null;
+		this.category = category;
+		return this;
+	}
+	
+	public LogBuilder marker(Marker marker) {
+		if (manager != null) {
+			this.marker = marker;
+		}
+		return this;
+	}
+	
+	public LogBuilder kv(@NotNull String key, long value) {
+		if (manager != null) {
+			keyValues.add(key, value);
+		}
+		return this;
+	}
+	
+	public LogBuilder kv(@NotNull String key, double value) {
+		if (manager != null) {
+			keyValues.add(key, value);
+		}
+		return this;
+	}
+	
+	public LogBuilder kv(@NotNull String key, boolean value) {
+		if (manager != null) {
+			keyValues.add(key, value);
+		}
+		return this;
+	}
+	
+	// the value is written with toString() by the Logger thread, so it must not change after the call
+	public LogBuilder kv(@NotNull String key, Object value) {
+		if (manager != null) {
+			keyValues.add(key, value);
+		}
+		return this;
+	}
+	
+	// add the log with the pairs
+	public void log(String message) {
+		if (manager != null) {
+			offer(message, null);
+		}
+	}
+	
+	// add the log with the pairs, the message can have placeholders {}
+	public void log(String message, Object... params) {
+		if (manager != null) {
+			offer(message, params);
+		}
+	}
+	
+	// the arrays of the pairs go to the log and the builder takes the empty ones of the log, if it has them,
+	// or the ones given back
+	private void offer(String message, Object[] params) {
+		final AsyncLoggerManager manager = this.manager.get();
+		if (manager == null) {
+			return;
+		}
+		final Log log = manager.obtain(marker, message, severity, params);
+		log.category = category;
+		final KeyValues filled = keyValues;
+		keyValues = log.keyValues != null ? log.keyValues : spare();
+		log.keyValues = filled;
+		marker = null;
+		category = null;
+		manager.offer(log);
+	}
+}
@@ -0,0 +1,62 @@
+package AsyncLogger;
+
+import java.util.concurrent.TimeUnit;
+
+// time taken when a log is added to the queue, in nanoseconds from the epoch
+@SuppressWarnings("unused")
+public enum LogClock {
+	// no time is taken, the log has the time when the Logger thread writes it
+	NONE {
+		@Override
+		long now() {
+			return 0;
+		}
+	},
+	// milliseconds read from a field that a background thread updates every millisecond
+	CACHED {
+		@Override
+		long now() {
+			return Ticker.millis * 1_000_000L;
+		}
+	},
+	// System.nanoTime() added to the wall clock read at the start, it follows the monotonic clock of the system
+	PRECISE {
+		@Override
+		long now() {
+			return PreciseBase.base + System.nanoTime();
+		}
+	};
+	
+	abstract long now();
+	
+	// the thread is started the first time the cached clock is used
+	private static final class Ticker extends Thread {
+		
+		static volatile long millis = System.currentTimeMillis();
+		
+		static {
+			new Ticker().start();
+		}
+		
+		private Ticker() {
+			super("AsyncLogger-clock");
+			setDaemon(true);
+		}
+		
+		@Override
+		public void run() {
+			while (true) {
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException e) {
+					return;
+				}
+				millis = System.currentTimeMillis();
+			}
+		}
+	}
+	
+	private static final class PreciseBase {
+		static final long base = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) - System.nanoTime();
+	}
+}
@@ -0,0 +1,78 @@
+package AsyncLogger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// bounded pool of preallocated logs, the threads that log take them and the Logger thread gives them back
+// after they have been logged. It is a multi-producer multi-consumer array queue: each slot has a sequence
+// that says if it can be filled or emptied, so no objects are allocated after the construction.
+class LogPool {
+	
+	private final Log[] logs;
+	private final AtomicLongArray sequences;
+	private final int mask;
+	// next position to fill
+	private final AtomicLong tail = new AtomicLong();
+	// next position to empty
+	private final AtomicLong head = new AtomicLong();
+	
+	LogPool(int size) {
+		if (size < 2 || size > 1 << 30) {
+			throw new IllegalArgumentException("Pool size must be >= 2 and <= " + (1 << 30));
+		}
+		final int capacity = Integer.highestOneBit(size - 1) << 1;
+		this.mask = capacity - 1;
+		this.logs = new Log[capacity];
+		this.sequences = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++) {
+			logs[i] = new Log();
+			sequences.set(i, i + 1);
+		}
+		tail.set(capacity);
+	}
+	
+	// take a free log, null if all the logs are in use
+	Log take() {
+		long h = head.get();
+		for (;;) {
+			final int i = (int) h & mask;
+			final long dif = sequences.get(i) - (h + 1);
+			if (dif == 0) {
+				if (head.compareAndSet(h, h + 1)) {
+					final Log log = logs[i];
+					logs[i] = null;
+					sequences.lazySet(i, h + mask + 1);
+					return log;
+				}
+				h = head.get();
+			} else if (dif < 0) {
+				return null;
+			} else {
+				h = head.get();
+			}
+		}
+	}
+	
+	// give back a log that is not used anymore, its references are cleared
+	void release(Log log) {
+		log.clear();
+		long t = tail.get();
+		for (;;) {
+			final int i = (int) t & mask;
+			final long dif = sequences.get(i) - t;
+			if (dif == 0) {
+				if (tail.compareAndSet(t, t + 1)) {
+					logs[i] = log;
+					sequences.lazySet(i, t + 1);
+					return;
+				}
+				t = tail.get();
+			} else if (dif < 0) {
+				// the pool is full, it cannot happen with the logs of the pool
+				return;
+			} else {
+				t = tail.get();
+			}
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package AsyncLogger;
+
+// queue between the threads that log and the Logger thread
+interface LogQueue {
+	// add a log, false if the log has been discarded
+	boolean offer(Log log);
+	
+	// remove the oldest log, null if there are no logs ready
+	Log poll();
+	
+	// remove up to max logs in order and put them at the beginning of the batch, it returns how many they are
+	int drain(Log[] batch, int max);
+	
+	boolean isEmpty();
+	
+	// number of logs in the queue, it could be approximate
+	int size();
+	
+	// logs that left their slot to other logs, they are never drained
+	default long evicted() {
+		return 0;
+	}
+}
@@ -0,0 +1,8 @@
+package AsyncLogger;
+
+// where the Logger thread writes the logs taken from the queue.
+// The logs can be reused after write returns, so a sink must not keep them.
+public interface LogSink {
+	// write the first size logs of the batch, in order
+	void write(Log[] logs, int size);
+}
@@ -0,0 +1,312 @@
+package AsyncLogger;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+
+// overflow of the queue of a shard on disk: when the queue is too long the threads that log encode the logs
+// in memory-mapped segments with the format of BinaryFileSink, and once the queue is empty the Logger thread
+// reads them back in order and gives them to the sink. While there are logs on disk the new logs go to disk too,
+// so the order of the logs of a thread is kept. The segment written now is replayed up to its last log while the
+// threads keep writing it, it is closed only when it is full or the Logger thread has caught up with it.
+// A segment is deleted when it has been replayed,
+// the segments left by a process that has crashed are replayed first by the next one.
+// A replayed log is decoded from the file: its parameters that are not numbers, booleans or throwables are strings.
+// If a log can't be written the spill is disabled, the segments already written are still replayed.
+final class LogSpill {
+	
+	// a segment is closed and a new one is started after this many bytes
+	static final int SEGMENT_SIZE = 16 * 1024 * 1024;
+	private static final String SUFFIX = ".almb";
+	
+	private final File directory;
+	private final String prefix;
+	// segments closed and not replayed yet, guarded by this
+	private final ArrayDeque<File> closed = new ArrayDeque<>();
+	// segment written now, null if there is none, guarded by this
+	private BinaryFileSink writer;
+	private File writing;
+	private long next;
+	// segment replayed now by the Logger thread, null if there is none, set under the lock of this
+	private File reading;
+	private SegmentInput input;
+	private BinaryLogReader reader;
+	// if the new logs must be written to disk to keep the order
+	private volatile boolean active;
+	// a log could not be written, the new logs stay in memory
+	private volatile boolean failed;
+	private final Log[] one = new Log[1];
+	// buffer of the deferred messages appended for the logs that are not pooled
+	private StringBuilder text = new StringBuilder(128);
+	
+	LogSpill(File directory, int shard) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create the spill directory " + directory);
+		}
+		this.directory = directory;
+		this.prefix = "spill-" + shard + "-";
+		// the segments of a previous process, in the order in which they were written
+		final File[] left = directory.listFiles((dir, name) -> name.startsWith(prefix) && name.endsWith(SUFFIX) &&
+				number(name) >= 0);
+		if (left != null && left.length > 0) {
+			Arrays.sort(left, Comparator.comparingLong(file -> number(file.getName())));
+			closed.addAll(Arrays.asList(left));
+			next = number(left[left.length - 1].getName()) + 1;
+			active = true;
+		}
+	}
+	
+	private long number(String name) {
+		try {
+			return Long.parseLong(name.substring(prefix.length(), name.length() - SUFFIX.length()));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+	
+	boolean isActive() {
+		return active;
+	}
+	
+	// false after a log could not be written
+	boolean isEnabled() {
+		return !failed;
+	}
+	
+	// write a log to disk, false if it could not be written. A deferred message is computed now.
+	synchronized boolean offer(Log log) {
+		if (failed) {
+			return false;
+		}
+		try {
+			if (writer == null) {
+				writing = new File(directory, prefix + next++ + SUFFIX);
+				writer = new BinaryFileSink(writing.getPath(), SEGMENT_SIZE, true);
+			}
+			// as the Logger thread does, a message that can't be computed doesn't lose the log
+			if (log.toLogMessage != null) {
+				try {
+					log.message = log.toLogMessage.action(log.object);
+				} catch (RuntimeException e) {
+					log.message = "Deferred message not computed: " + e;
+				}
+				log.toLogMessage = null;
+				log.object = null;
+			} else if (log.appendMessage != null) {
+				try {
+					if (text.capacity() > Log.MAX_BUFFER) {
+						text = new StringBuilder(128);
+					}
+					log.appendMessage.action(log.text(text), log.object);
+				} catch (RuntimeException e) {
+					log.text = null;
+					log.message = "Deferred message not computed: " + e;
+				}
+				log.appendMessage = null;
+				log.object = null;
+			}
+			one[0] = log;
+			try {
+				writer.append(one, 1);
+			} finally {
+				one[0] = null;
+				if (log.text == text) {
+					log.text = null;
+				}
+			}
+			active = true;
+			if (writer.position() >= SEGMENT_SIZE) {
+				close();
+			}
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			disable();
+			return false;
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+	
+	// the segment written now is closed, so the logs written before the failure are replayed
+	private void disable() {
+		failed = true;
+		if (writer != null) {
+			try {
+				close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	// the segment is replayed even if it could not be truncated, the one replayed now is not queued again
+	private void close() throws IOException {
+		final BinaryFileSink closing = writer;
+		if (writing != reading) {
+			closed.add(writing);
+		}
+		writer = null;
+		writing = null;
+		closing.close();
+	}
+	
+	// give the logs of the oldest segment to the sink, it is called by the Logger thread when the queue is empty.
+	// The segment written now is read up to its last log. It returns how many logs have been written, -1 if there
+	// are no more logs on disk.
+	int replay(LogSink sink, Log[] batch) {
+		final boolean live;
+		synchronized (this) {
+			if (reading == null) {
+				final File segment = !closed.isEmpty() ? closed.poll() : writer != null ? writing : null;
+				if (segment == null) {
+					active = false;
+					return -1;
+				}
+				try {
+					input = new SegmentInput(segment);
+				} catch (IOException e) {
+					e.printStackTrace();
+					if (segment == writing) {
+						// the logs written from now on would never be read
+						reading = segment;
+						disable();
+						reading = null;
+					}
+					delete(segment);
+					return 0;
+				}
+				reading = segment;
+			}
+			live = reading == writing;
+			if (live) {
+				final long limit = writer.position();
+				if (input.position == limit) {
+					// caught up: the new logs go to the queue again and the segment is not needed anymore
+					active = false;
+					try {
+						close();
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+					endSegment();
+					return -1;
+				}
+				input.limit = limit;
+			} else {
+				input.limit = Long.MAX_VALUE;
+			}
+		}
+		
+		int logs = 0;
+		try {
+			if (reader == null) {
+				reader = new BinaryLogReader(input);
+			}
+			int size = 0;
+			Log log;
+			try {
+				while ((log = reader.next()) != null) {
+					batch[size++] = log;
+					if (size == batch.length) {
+						sink.write(batch, size);
+						logs += size;
+						size = 0;
+					}
+				}
+			} catch (EOFException e) {
+				// the last log of a segment cut by a crash
+			}
+			if (size > 0) {
+				sink.write(batch, size);
+				logs += size;
+			}
+			Arrays.fill(batch, null);
+		} catch (IOException e) {
+			e.printStackTrace();
+			if (live) {
+				// the segment can't be read, its next logs are not read either
+				synchronized (this) {
+					if (reading == writing) {
+						try {
+							close();
+						} catch (IOException closing) {
+							closing.printStackTrace();
+						}
+					}
+				}
+			}
+			endSegment();
+			return logs;
+		}
+		if (!live) {
+			endSegment();
+		}
+		return logs;
+	}
+	
+	private synchronized void endSegment() {
+		try {
+			input.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		delete(reading);
+		input = null;
+		reader = null;
+		reading = null;
+	}
+	
+	private static void delete(File segment) {
+		if (!segment.delete()) {
+			System.err.println("Spill segment not deleted: " + segment);
+		}
+	}
+	
+	// the bytes of a segment up to limit, the logs written later are read by the next replay
+	private static final class SegmentInput extends InputStream {
+		
+		private final InputStream in;
+		long position;
+		long limit;
+		
+		SegmentInput(File segment) throws IOException {
+			this.in = new FileInputStream(segment);
+		}
+		
+		@Override
+		public int read() throws IOException {
+			if (position >= limit) {
+				return -1;
+			}
+			final int b = in.read();
+			if (b >= 0) {
+				position++;
+			}
+			return b;
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (position >= limit) {
+				return -1;
+			}
+			final int n = in.read(b, off, (int) Math.min(len, limit - position));
+			if (n > 0) {
+				position += n;
+			}
+			return n;
+		}
+		
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
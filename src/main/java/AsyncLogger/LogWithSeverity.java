@@ -1,6 +1,9 @@
 package AsyncLogger;
 
+import org.apache.logging.log4j.Marker;
+
 @FunctionalInterface
 interface LogWithSeverity {
-	void log(org.apache.logging.log4j.core.async.AsyncLogger logger, Log log);
+	void log(org.apache.logging.log4j.core.async.AsyncLogger logger, Marker marker, CharSequence message,
+			Throwable thrown);
 }
@@ -0,0 +1,113 @@
+package AsyncLogger;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// bytes retained by the logs that are waiting in the queues of a manager, with a maximum.
+// The size of a log is estimated once when it is added: the log itself, its message and its parameters, strings and
+// arrays by their length, other objects by their shallow size. The Logger thread gives the bytes back after a batch.
+final class MemoryBudget {
+	
+	// nanoseconds that a blocked producer waits before trying again
+	private static final long BLOCK_PARK = 1000L;
+	// object header and fields of a Log
+	private static final long LOG = 96;
+	private static final long OBJECT = 16;
+	// header of a String and of its array
+	private static final long STRING = 40;
+	// a Throwable with its stack trace, that is not measured
+	private static final long THROWABLE = 1024;
+	
+	private final long budget;
+	private final AtomicLong used = new AtomicLong();
+	
+	MemoryBudget(long budget) {
+		if (budget < 1) {
+			throw new IllegalArgumentException("Memory budget must be > 0");
+		}
+		this.budget = budget;
+	}
+	
+	// take the bytes of the log, false if they are over the budget and the policy doesn't wait.
+	// A log larger than the whole budget is taken when the queues are empty.
+	boolean acquire(Log log, OverflowPolicy policy) {
+		final long size = estimate(log);
+		log.bytes = size;
+		for (;;) {
+			final long current = used.get();
+			if (current + size <= budget || current == 0) {
+				if (used.compareAndSet(current, current + size)) {
+					return true;
+				}
+			} else if (policy != OverflowPolicy.BLOCK) {
+				return false;
+			} else {
+				LockSupport.parkNanos(BLOCK_PARK);
+			}
+		}
+	}
+	
+	void release(Log log) {
+		release(log.bytes);
+	}
+	
+	void release(long bytes) {
+		if (bytes != 0) {
+			used.addAndGet(-bytes);
+		}
+	}
+	
+	long used() {
+		return used.get();
+	}
+	
+	static long estimate(Log log) {
+		long size = LOG + estimate(log.message) + estimate(log.text);
+		if (log.objects != null) {
+			size += OBJECT + 8L * log.objects.length;
+			for (Object object : log.objects) {
+				size += estimate(object);
+			}
+		}
+		if (log.object != null) {
+			size += estimate(log.object);
+		}
+		if (log.hasKeyValues()) {
+			final KeyValues keyValues = log.keyValues;
+			size += 4 * OBJECT + 21L * keyValues.keys.length;
+			for (int i = 0; i < keyValues.size; i++) {
+				size += estimate(keyValues.objects[i]);
+			}
+		}
+		return size;
+	}
+	
+	private static long estimate(Object object) {
+		if (object == null) {
+			return 0;
+		} else if (object instanceof CharSequence) {
+			return STRING + 2L * ((CharSequence) object).length();
+		} else if (object instanceof byte[]) {
+			return OBJECT + ((byte[]) object).length;
+		} else if (object instanceof char[]) {
+			return OBJECT + 2L * ((char[]) object).length;
+		} else if (object instanceof int[]) {
+			return OBJECT + 4L * ((int[]) object).length;
+		} else if (object instanceof long[]) {
+			return OBJECT + 8L * ((long[]) object).length;
+		} else if (object instanceof double[]) {
+			return OBJECT + 8L * ((double[]) object).length;
+		} else if (object instanceof Object[]) {
+			return OBJECT + 8L * ((Object[]) object).length;
+		} else if (object instanceof Collection) {
+			return OBJECT + 8L * ((Collection<?>) object).size();
+		} else if (object instanceof Map) {
+			return OBJECT + 32L * ((Map<?, ?>) object).size();
+		} else if (object instanceof Throwable) {
+			return THROWABLE;
+		}
+		return OBJECT;
+	}
+}
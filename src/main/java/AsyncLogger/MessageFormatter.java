@@ -0,0 +1,102 @@
+package AsyncLogger;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+// formatting of the messages on the Logger thread, each {} is replaced by the next parameter.
+// Each message is parsed once into a MessageTemplate, kept in a bounded cache shared by all the managers.
+@SuppressWarnings("unused")
+public final class MessageFormatter {
+	
+	// distinct messages with parameters that are parsed once
+	private static final int CACHE_SIZE = 4096;
+	private static final TemplateCache cache = new TemplateCache(CACHE_SIZE);
+	
+	private MessageFormatter() {
+	}
+	
+	// message of a log with its parameters, of primitive type or objects, its key-value pairs and the stack of its
+	// Throwable
+	static void format(StringBuilder builder, Log log) {
+		if (log.hasPrimitive) {
+			formatMessage(builder, log);
+		} else if (!log.hasKeyValues() && log.text == null) {
+			format(builder, log.message, log.objects);
+		} else {
+			formatMessage(builder, log);
+			final Throwable thrown = thrown(log);
+			if (thrown != null) {
+				appendStack(builder, thrown);
+			}
+		}
+	}
+	
+	// message of a log with its parameters and its key-value pairs as logfmt, without the stack of its Throwable
+	static void formatMessage(StringBuilder builder, Log log) {
+		formatText(builder, log);
+		if (log.hasKeyValues()) {
+			builder.append(' ');
+			log.keyValues.formatLogfmt(builder);
+		}
+	}
+	
+	private static void formatText(StringBuilder builder, Log log) {
+		if (log.text != null) {
+			builder.append(log.text);
+		} else if (log.message == null) {
+			builder.append((String) null);
+		} else if (log.hasPrimitive) {
+			cache.get(log.message).format(builder, log);
+		} else if (log.objects == null || log.objects.length == 0) {
+			builder.append(log.message);
+		} else {
+			cache.get(log.message).format(builder, log.objects);
+		}
+	}
+	
+	// the Throwable after the parameters of the placeholders, null if there is none
+	static Throwable thrown(Log log) {
+		final Object[] params = log.objects;
+		if (log.message == null || log.hasPrimitive || params == null || params.length == 0
+				|| !(params[params.length - 1] instanceof Throwable)) {
+			return null;
+		}
+		return cache.get(log.message).placeholders() < params.length ? (Throwable) params[params.length - 1] : null;
+	}
+	
+	// message with its parameters, a Throwable after the parameters of the placeholders is written with its stack
+	public static void format(StringBuilder builder, String message, Object[] params) {
+		if (message == null) {
+			builder.append((String) null);
+			return;
+		}
+		if (params == null || params.length == 0) {
+			builder.append(message);
+			return;
+		}
+		final MessageTemplate template = cache.get(message);
+		template.format(builder, params);
+		if (template.placeholders() < params.length && params[params.length - 1] instanceof Throwable) {
+			appendStack(builder, (Throwable) params[params.length - 1]);
+		}
+	}
+	
+	private static void appendStack(StringBuilder builder, Throwable thrown) {
+		final StringWriter writer = new StringWriter();
+		thrown.printStackTrace(new PrintWriter(writer));
+		final StringBuffer stack = writer.getBuffer();
+		int end = stack.length();
+		while (end > 0 && (stack.charAt(end - 1) == '\n' || stack.charAt(end - 1) == '\r')) {
+			end--;
+		}
+		builder.append(System.lineSeparator()).append(stack, 0, end);
+	}
+	
+	// value of the primitive parameter of the log, boxed
+	static Object primitive(Log log) {
+		if (log.doublePrimitive) {
+			return Double.longBitsToDouble(log.primitive);
+		}
+		return log.primitive;
+	}
+}
@@ -0,0 +1,125 @@
+package AsyncLogger;
+
+import org.apache.logging.log4j.message.ParameterizedMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// a message parsed once into the text around its placeholders {}, so formatting it is only a sequence of appends.
+// The rules are the ones of ParameterizedMessage of log4j: \{} is a literal {}, \\{} is a backslash before a
+// placeholder, and the parameters that are not strings or numbers are written with ParameterizedMessage.deepToString
+final class MessageTemplate {
+	
+	private static final String[] NO_PLACEHOLDERS = new String[0];
+	private static final char ESCAPE = '\\';
+	
+	// the text before each placeholder
+	private final String[] segments;
+	// the text after the last placeholder
+	private final String tail;
+	
+	MessageTemplate(String message) {
+		if (message.indexOf(ESCAPE) < 0) {
+			int count = 0;
+			for (int i = message.indexOf("{}"); i >= 0; i = message.indexOf("{}", i + 2)) {
+				count++;
+			}
+			this.segments = count == 0 ? NO_PLACEHOLDERS : new String[count];
+			int last = 0, j = 0;
+			for (int i = message.indexOf("{}"); i >= 0; i = message.indexOf("{}", last)) {
+				segments[j++] = message.substring(last, i);
+				last = i + 2;
+			}
+			this.tail = message.substring(last);
+			return;
+		}
+		// an odd number of backslashes before {} escapes it, each pair of backslashes before {} is one backslash
+		final List<String> parsed = new ArrayList<>();
+		final StringBuilder segment = new StringBuilder(message.length());
+		int escapes = 0;
+		for (int i = 0; i < message.length(); i++) {
+			final char c = message.charAt(i);
+			if (c == ESCAPE) {
+				escapes++;
+				continue;
+			}
+			if (c == '{' && i + 1 < message.length() && message.charAt(i + 1) == '}') {
+				i++;
+				appendEscapes(segment, escapes >> 1);
+				if ((escapes & 1) != 0) {
+					segment.append("{}");
+				} else {
+					parsed.add(segment.toString());
+					segment.setLength(0);
+				}
+			} else {
+				appendEscapes(segment, escapes).append(c);
+			}
+			escapes = 0;
+		}
+		appendEscapes(segment, escapes);
+		this.segments = parsed.isEmpty() ? NO_PLACEHOLDERS : parsed.toArray(NO_PLACEHOLDERS);
+		this.tail = segment.toString();
+	}
+	
+	private static StringBuilder appendEscapes(StringBuilder builder, int count) {
+		for (int i = 0; i < count; i++) {
+			builder.append(ESCAPE);
+		}
+		return builder;
+	}
+	
+	int placeholders() {
+		return segments.length;
+	}
+	
+	// the placeholders without a parameter are left as {}
+	void format(StringBuilder builder, Object[] params) {
+		final int count = params == null ? 0 : Math.min(params.length, segments.length);
+		int i = 0;
+		for (; i < count; i++) {
+			appendParameter(builder.append(segments[i]), params[i]);
+		}
+		appendRemaining(builder, i);
+	}
+	
+	// the message of a log with a parameter of primitive type
+	void format(StringBuilder builder, Log log) {
+		if (segments.length == 0) {
+			appendRemaining(builder, 0);
+			return;
+		}
+		builder.append(segments[0]);
+		if (log.doublePrimitive) {
+			builder.append(Double.longBitsToDouble(log.primitive));
+		} else {
+			builder.append(log.primitive);
+		}
+		appendRemaining(builder, 1);
+	}
+	
+	// the numbers are appended without the String of append(Object), arrays, collections, maps and dates as log4j
+	private static void appendParameter(StringBuilder builder, Object param) {
+		if (param == null || param instanceof String) {
+			builder.append((String) param);
+		} else if (param instanceof Long) {
+			builder.append((long) (Long) param);
+		} else if (param instanceof Integer) {
+			builder.append((int) (Integer) param);
+		} else if (param instanceof Double) {
+			builder.append((double) (Double) param);
+		} else if (param instanceof Boolean || param instanceof Character || param instanceof Float
+				|| param instanceof Short || param instanceof Byte) {
+			builder.append(param);
+		} else {
+			builder.append(ParameterizedMessage.deepToString(param));
+		}
+	}
+	
+	private void appendRemaining(StringBuilder builder, int from) {
+		for (int i = from; i < segments.length; i++) {
+			builder.append(segments[i]).append("{}");
+		}
+		builder.append(tail);
+	}
+}
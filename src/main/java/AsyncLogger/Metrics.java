@@ -0,0 +1,208 @@
+package AsyncLogger;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// counters of an AsyncLoggerManager and its MXBean. The counters of the threads that log are LongAdder,
+// striped so that the threads don't compete on the same cache line; the histograms are written
+// only by the Logger threads.
+final class Metrics implements AsyncLoggerMetricsMXBean {
+	
+	private static final int BUCKETS = 32;
+	
+	private final LongAdder[] enqueued = adders();
+	private final LongAdder[] filtered = adders();
+	private final LongAdder[] dropped = adders();
+	private final LongAdder[] throttled = adders();
+	private final LongAdder[] rateLimited = adders();
+	private final AtomicLongArray batchSizes = new AtomicLongArray(BUCKETS);
+	private final AtomicLongArray drainNanos = new AtomicLongArray(BUCKETS);
+	private final IntSupplier queueDepth;
+	private final LongSupplier retainedBytes;
+	private final AtomicInteger sevMin;
+	private final AtomicInteger lastSet;
+	private final AtomicInteger status;
+	// name of the MXBean, null if it is not published
+	private final ObjectName name;
+	
+	Metrics(IntSupplier queueDepth, LongSupplier retainedBytes, AtomicInteger sevMin, AtomicInteger lastSet,
+	        AtomicInteger status, String jmxName) {
+		this.queueDepth = queueDepth;
+		this.retainedBytes = retainedBytes;
+		this.sevMin = sevMin;
+		this.lastSet = lastSet;
+		this.status = status;
+		if (jmxName == null) {
+			this.name = null;
+		} else {
+			try {
+				this.name = new ObjectName("AsyncLogger:type=AsyncLoggerManager,name=" + ObjectName.quote(jmxName));
+			} catch (JMException e) {
+				throw new IllegalArgumentException("Invalid JMX name " + jmxName, e);
+			}
+		}
+	}
+	
+	private static LongAdder[] adders() {
+		final LongAdder[] adders = new LongAdder[AsyncLoggerManager.noLog];
+		for (int i = 0; i < adders.length; i++) {
+			adders[i] = new LongAdder();
+		}
+		return adders;
+	}
+	
+	void enqueued(int severity) {
+		enqueued[severity].increment();
+	}
+	
+	void dropped(int severity) {
+		dropped[severity].increment();
+	}
+	
+	// a log discarded by a rate limit
+	void rateLimited(int severity) {
+		rateLimited[severity].increment();
+	}
+	
+	// a log under the minimum severity is throttled if the application has enabled its severity
+	// and the manager is not paused
+	void discarded(int severity) {
+		if (severity >= AsyncLoggerManager.noLog) {
+			return;
+		}
+		if (severity >= lastSet.get() && status.get() >= 2) {
+			throttled[severity].increment();
+		} else {
+			filtered[severity].increment();
+		}
+	}
+	
+	// a batch written by a Logger thread
+	void drained(int size, long nanos) {
+		increment(batchSizes, bucket(size));
+		increment(drainNanos, bucket(nanos));
+	}
+	
+	private static void increment(AtomicLongArray histogram, int bucket) {
+		histogram.incrementAndGet(bucket);
+	}
+	
+	private static int bucket(long value) {
+		return value <= 1 ? 0 : Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(value));
+	}
+	
+	MetricsSnapshot snapshot() {
+		return new MetricsSnapshot(getEnqueued(), getFiltered(), getDropped(), getThrottled(), getRateLimited(),
+				getQueueDepth(),
+				getRetainedBytes(), severity(sevMin.get()), severity(lastSet.get()), getBatchSizes(), getDrainNanos());
+	}
+	
+	// the MXBean is published until the Logger thread ends
+	void register() {
+		if (name != null) {
+			try {
+				final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+				if (!server.isRegistered(name)) {
+					server.registerMBean(this, name);
+				}
+			} catch (JMException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	void unregister() {
+		if (name != null) {
+			try {
+				final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+				if (server.isRegistered(name)) {
+					server.unregisterMBean(name);
+				}
+			} catch (JMException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	private static Severity severity(int severity) {
+		return severity >= AsyncLoggerManager.noLog ? Severity.NO_LOG : Severity.getNewSeverity(severity);
+	}
+	
+	private static long[] sums(LongAdder[] adders) {
+		final long[] sums = new long[adders.length];
+		for (int i = 0; i < adders.length; i++) {
+			sums[i] = adders[i].sum();
+		}
+		return sums;
+	}
+	
+	private static long[] values(AtomicLongArray histogram) {
+		final long[] values = new long[histogram.length()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = histogram.get(i);
+		}
+		return values;
+	}
+	
+	@Override
+	public long[] getEnqueued() {
+		return sums(enqueued);
+	}
+	
+	@Override
+	public long[] getFiltered() {
+		return sums(filtered);
+	}
+	
+	@Override
+	public long[] getDropped() {
+		return sums(dropped);
+	}
+	
+	@Override
+	public long[] getThrottled() {
+		return sums(throttled);
+	}
+	
+	@Override
+	public long[] getRateLimited() {
+		return sums(rateLimited);
+	}
+	
+	@Override
+	public int getQueueDepth() {
+		return queueDepth.getAsInt();
+	}
+	
+	@Override
+	public long getRetainedBytes() {
+		return retainedBytes.getAsLong();
+	}
+	
+	@Override
+	public String getSeverityMin() {
+		return severity(sevMin.get()).toString();
+	}
+	
+	@Override
+	public String getSeveritySet() {
+		return severity(lastSet.get()).toString();
+	}
+	
+	@Override
+	public long[] getBatchSizes() {
+		return values(batchSizes);
+	}
+	
+	@Override
+	public long[] getDrainNanos() {
+		return values(drainNanos);
+	}
+}
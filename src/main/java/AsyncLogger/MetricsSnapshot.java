@@ -0,0 +1,109 @@
+package AsyncLogger;
+
+import org.jetbrains.annotations.NotNull;
+
+// metrics of an AsyncLoggerManager at a point in time. The counters are read one by one while the threads log,
+// so they are not a consistent cut, but each of them never decreases.
+@SuppressWarnings("unused")
+public final class MetricsSnapshot {
+	
+	private final long[] enqueued;
+	private final long[] filtered;
+	private final long[] dropped;
+	private final long[] throttled;
+	private final long[] rateLimited;
+	private final int queueDepth;
+	private final long retainedBytes;
+	private final Severity severityMin;
+	private final Severity severitySet;
+	private final long[] batchSizes;
+	private final long[] drainNanos;
+	
+	MetricsSnapshot(long[] enqueued, long[] filtered, long[] dropped, long[] throttled, long[] rateLimited,
+	                int queueDepth, long retainedBytes, Severity severityMin, Severity severitySet, long[] batchSizes,
+	                long[] drainNanos) {
+		this.enqueued = enqueued;
+		this.filtered = filtered;
+		this.dropped = dropped;
+		this.throttled = throttled;
+		this.rateLimited = rateLimited;
+		this.queueDepth = queueDepth;
+		this.retainedBytes = retainedBytes;
+		this.severityMin = severityMin;
+		this.severitySet = severitySet;
+		this.batchSizes = batchSizes;
+		this.drainNanos = drainNanos;
+	}
+	
+	// logs of the severity added to the queue
+	public long getEnqueued(@NotNull Severity severity) {
+		return count(enqueued, severity);
+	}
+	
+	// logs of the severity discarded because it is lower than the one set, or while the manager is paused
+	public long getFiltered(@NotNull Severity severity) {
+		return count(filtered, severity);
+	}
+	
+	// logs of the severity discarded because the queue was full
+	public long getDropped(@NotNull Severity severity) {
+		return count(dropped, severity);
+	}
+	
+	// logs of the severity discarded because the Logger thread could not keep up and raised the minimum severity
+	public long getThrottled(@NotNull Severity severity) {
+		return count(throttled, severity);
+	}
+	
+	// logs of the severity discarded by the rate limits of the builder
+	public long getRateLimited(@NotNull Severity severity) {
+		return count(rateLimited, severity);
+	}
+	
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+	
+	// estimated bytes of the logs in the queues, 0 without a memory budget
+	public long getRetainedBytes() {
+		return retainedBytes;
+	}
+	
+	// minimum severity of the logs that are processed when the snapshot was taken
+	public Severity getSeverityMin() {
+		return severityMin;
+	}
+	
+	// minimum severity set by the application
+	public Severity getSeveritySet() {
+		return severitySet;
+	}
+	
+	// histogram of the logs written to the sink together: bucket i counts the batches from 2^i to 2^(i+1) - 1
+	public long[] getBatchSizes() {
+		return batchSizes.clone();
+	}
+	
+	// histogram of the nanoseconds to prepare and write a batch, with the buckets of getBatchSizes()
+	public long[] getDrainNanos() {
+		return drainNanos.clone();
+	}
+	
+	private static long count(long[] counters, Severity severity) {
+		return severity.ordinal() < counters.length ? counters[severity.ordinal()] : 0;
+	}
+	
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder("queueDepth=").append(queueDepth)
+				.append(" retainedBytes=").append(retainedBytes)
+				.append(" severityMin=").append(severityMin).append(" severitySet=").append(severitySet);
+		for (int i = 0; i < enqueued.length; i++) {
+			builder.append(' ').append(Severity.getNewSeverity(i)).append("={enqueued=").append(enqueued[i])
+					.append(" filtered=").append(filtered[i]).append(" dropped=").append(dropped[i])
+					.append(" throttled=").append(throttled[i]).append(" rateLimited=").append(rateLimited[i])
+					.append('}');
+		}
+		return builder.toString();
+	}
+}
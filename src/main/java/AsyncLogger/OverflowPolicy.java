@@ -0,0 +1,13 @@
+package AsyncLogger;
+
+// what a bounded queue does with a new log when it is full
+@SuppressWarnings("unused")
+public enum OverflowPolicy {
+	// the producer waits until the Logger thread frees a slot
+	BLOCK,
+	// the new log is discarded
+	DROP,
+	// the oldest log with the lowest severity (lower than the new one) leaves its slot to the new log,
+	// if there is no log with a lower severity the new log is discarded
+	EVICT_LOWER
+}
@@ -0,0 +1,137 @@
+package AsyncLogger;
+
+import org.apache.logging.log4j.Marker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// token buckets of the logs by severity and by marker, a log is added only if it has a token in both.
+// A bucket is a single AtomicLong with the time when it will be full again (the generic cell rate algorithm):
+// taking a token moves it forward of one interval with a CAS, so the threads that log never wait.
+// The discarded logs are counted and the Logger thread writes how many they are periodically.
+final class RateLimiter {
+	
+	private final Bucket[] severities = new Bucket[AsyncLoggerManager.noLog];
+	// read only after the construction
+	private final Map<Marker, Bucket> markers = new HashMap<>();
+	private final List<Bucket> buckets = new ArrayList<>();
+	private final long summaryMillis;
+	// read by the workers of a DrainScheduler too
+	private volatile long lastSummary = System.currentTimeMillis();
+	
+	// the limits are Severity or Marker keys with {logs per second, burst}
+	RateLimiter(Map<Object, long[]> limits, long summaryMillis) {
+		for (Map.Entry<Object, long[]> limit : limits.entrySet()) {
+			final Object key = limit.getKey();
+			if (key instanceof Severity) {
+				final Bucket bucket = new Bucket("severity " + key, limit.getValue()[0], limit.getValue()[1]);
+				severities[((Severity) key).ordinal()] = bucket;
+				buckets.add(bucket);
+			} else {
+				final Bucket bucket = new Bucket("marker " + ((Marker) key).getName(), limit.getValue()[0],
+						limit.getValue()[1]);
+				markers.put((Marker) key, bucket);
+				buckets.add(bucket);
+			}
+		}
+		this.summaryMillis = summaryMillis;
+	}
+	
+	// if the log can be added, otherwise it is counted as suppressed
+	boolean tryAcquire(Log log) {
+		final Bucket severity = severities[log.severity];
+		final Bucket marker = log.marker != null && !markers.isEmpty() ? markers.get(log.marker) : null;
+		if (severity == null && marker == null) {
+			return true;
+		}
+		final long now = System.nanoTime();
+		if (marker != null && !marker.tryAcquire(now)) {
+			return false;
+		}
+		if (severity != null && !severity.tryAcquire(now)) {
+			// the token of the marker is given back, the log is counted only by the bucket that discarded it
+			if (marker != null) {
+				marker.release();
+			}
+			return false;
+		}
+		return true;
+	}
+	
+	// it is time for a summary and some logs have been suppressed since the last one
+	boolean summaryDue() {
+		if (System.currentTimeMillis() - lastSummary < summaryMillis) {
+			return false;
+		}
+		for (Bucket bucket : buckets) {
+			if (bucket.suppressed.sum() > 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	// the summaries of the buckets that have suppressed logs since the last one, null if it is not time yet.
+	// It is called only by the Logger thread.
+	List<String> summary(boolean force) {
+		final long now = System.currentTimeMillis();
+		if (!force && now - lastSummary < summaryMillis) {
+			return null;
+		}
+		lastSummary = now;
+		List<String> summary = null;
+		for (Bucket bucket : buckets) {
+			final long suppressed = bucket.suppressed.sumThenReset();
+			if (suppressed > 0) {
+				if (summary == null) {
+					summary = new ArrayList<>();
+				}
+				summary.add(suppressed + " suppressed for key " + bucket.key);
+			}
+		}
+		return summary;
+	}
+	
+	private static final class Bucket {
+		
+		private final String key;
+		// nanoseconds between two tokens
+		private final long interval;
+		// how much the bucket can be ahead of now, burst - 1 intervals
+		private final long tolerance;
+		// when the bucket will be full again
+		private final AtomicLong full;
+		private final LongAdder suppressed = new LongAdder();
+		
+		Bucket(String key, long perSecond, long burst) {
+			this.key = key;
+			this.interval = Math.max(1, TimeUnit.SECONDS.toNanos(1) / perSecond);
+			this.tolerance = interval * (burst - 1);
+			this.full = new AtomicLong(System.nanoTime());
+		}
+		
+		boolean tryAcquire(long now) {
+			for (;;) {
+				final long current = full.get();
+				final long start = current - now > 0 ? current : now;
+				if (start - now > tolerance) {
+					suppressed.increment();
+					return false;
+				}
+				if (full.compareAndSet(current, start + interval)) {
+					return true;
+				}
+			}
+		}
+		
+		// give back a token taken by tryAcquire
+		void release() {
+			full.addAndGet(-interval);
+		}
+	}
+}
@@ -0,0 +1,219 @@
+package AsyncLogger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+// bounded multi-producer single-consumer ring buffer, all the slots are allocated once.
+// A producer claims a position moving the tail with a CAS and then publishes the log in the slot,
+// the Logger thread is the only one that takes the logs and moves the head.
+// With EVICT_LOWER every slot has a stamp with the position of its log: a recycled Log can come back to the same
+// slot at a later position, so the producer that evicts locks the stamp of the position it has chosen
+// instead of comparing only the reference, and the Logger thread takes a log only through its stamp.
+class RingLogQueue implements LogQueue {
+	
+	// how many times a producer looks for a log to evict before giving up
+	private static final int EVICT_ATTEMPTS = 4;
+	// nanoseconds that a blocked producer waits before trying again
+	private static final long BLOCK_PARK = 1000L;
+	
+	private final AtomicReferenceArray<Log> slots;
+	private final int capacity;
+	private final int mask;
+	private final OverflowPolicy policy;
+	// pool of the logs, an evicted log goes back to it
+	private final LogPool pool;
+	// counters of the evicted logs, null without metrics
+	private final Metrics metrics;
+	// bytes of the queued logs, an evicted log gives them back; null without a memory budget
+	private final MemoryBudget budget;
+	// logs replaced by the new ones with EVICT_LOWER
+	private final AtomicLong evicted = new AtomicLong();
+	// with EVICT_LOWER the position of the log in each slot, TAKEN when it is empty
+	// and locked(position) while a producer replaces it; null with the other policies
+	private final AtomicLongArray stamps;
+	private static final long TAKEN = -1;
+	// next position to claim for the producers
+	private final AtomicLong tail = new AtomicLong();
+	// next position to read, written only by the Logger thread
+	private volatile long head;
+	
+	RingLogQueue(int capacity, @NotNull OverflowPolicy policy) {
+		this(capacity, policy, null, null, null);
+	}
+	
+	RingLogQueue(int capacity, @NotNull OverflowPolicy policy, LogPool pool, Metrics metrics, MemoryBudget budget) {
+		if (capacity < 2 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Capacity must be >= 2 and <= " + (1 << 30));
+		}
+		// capacity is rounded up to a power of 2 to get the slot with a mask
+		this.capacity = Integer.highestOneBit(capacity - 1) << 1;
+		this.mask = this.capacity - 1;
+		this.slots = new AtomicReferenceArray<>(this.capacity);
+		this.policy = policy;
+		this.pool = pool;
+		this.metrics = metrics;
+		this.budget = budget;
+		if (policy == OverflowPolicy.EVICT_LOWER) {
+			this.stamps = new AtomicLongArray(this.capacity);
+			for (int i = 0; i < this.capacity; i++) {
+				stamps.set(i, TAKEN);
+			}
+		} else {
+			this.stamps = null;
+		}
+	}
+	
+	private static long locked(long position) {
+		return -position - 2;
+	}
+	
+	@Override
+	public boolean offer(Log log) {
+		long t;
+		for (;;) {
+			t = tail.get();
+			if (t - head < capacity) {
+				if (tail.compareAndSet(t, t + 1)) {
+					break;
+				}
+			} else if (policy == OverflowPolicy.DROP) {
+				return false;
+			} else if (policy == OverflowPolicy.EVICT_LOWER) {
+				return evict(log);
+			} else {
+				LockSupport.parkNanos(BLOCK_PARK);
+			}
+		}
+		
+		if (stamps != null) {
+			slots.set((int) t & mask, log);
+			stamps.set((int) t & mask, t);
+		} else {
+			slots.lazySet((int) t & mask, log);
+		}
+		return true;
+	}
+	
+	@Override
+	public Log poll() {
+		final long h = head;
+		final Log log = stamps != null ? take(h) : slots.getAndSet((int) h & mask, null);
+		if (log != null) {
+			head = h + 1;
+		}
+		return log;
+	}
+	
+	// the log of the position, null if it has not been published yet. The stamp is moved to TAKEN with a CAS,
+	// so a producer cannot evict a log that has already been taken, and a log being replaced is waited for.
+	private Log take(long position) {
+		final int i = (int) position & mask;
+		for (;;) {
+			final long stamp = stamps.get(i);
+			if (stamp == position) {
+				if (stamps.compareAndSet(i, position, TAKEN)) {
+					final Log log = slots.get(i);
+					slots.lazySet(i, null);
+					return log;
+				}
+			} else if (stamp != locked(position)) {
+				return null;
+			}
+		}
+	}
+	
+	// the head is moved once for the whole batch
+	@Override
+	public int drain(Log[] batch, int max) {
+		final long h = head;
+		int size = 0;
+		if (stamps != null) {
+			Log log;
+			while (size < max && (log = take(h + size)) != null) {
+				batch[size++] = log;
+			}
+		} else {
+			// without evictions only the Logger thread changes a published slot
+			Log log;
+			int i;
+			while (size < max && (log = slots.get(i = (int) (h + size) & mask)) != null) {
+				slots.lazySet(i, null);
+				batch[size++] = log;
+			}
+		}
+		if (size > 0) {
+			head = h + size;
+		}
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return tail.get() == head;
+	}
+	
+	@Override
+	public int size() {
+		return (int) Math.max(0, Math.min(capacity, tail.get() - head));
+	}
+	
+	@Override
+	public long evicted() {
+		return evicted.get();
+	}
+	
+	// replace the oldest log with the lowest severity, the new log takes its position in the queue
+	private boolean evict(Log log) {
+		for (int attempt = 0; attempt < EVICT_ATTEMPTS; attempt++) {
+			final long t = tail.get();
+			int lowestSeverity = log.severity;
+			long victim = -1;
+			for (long i = head; i < t; i++) {
+				final int slot = (int) i & mask;
+				if (stamps.get(slot) != i) {
+					continue;
+				}
+				final Log l = slots.get(slot);
+				if (l != null && l.severity < lowestSeverity) {
+					lowestSeverity = l.severity;
+					victim = i;
+					if (l.severity == AsyncLoggerManager.trace) {
+						break;
+					}
+				}
+			}
+			if (victim < 0) {
+				return false;
+			}
+			// while the stamp is locked the log of the position can't be taken or replaced by anyone else
+			final int slot = (int) victim & mask;
+			if (!stamps.compareAndSet(slot, victim, locked(victim))) {
+				continue;
+			}
+			final Log lowest = slots.get(slot);
+			final boolean replaced = lowest.severity < log.severity;
+			if (replaced) {
+				slots.set(slot, log);
+			}
+			stamps.set(slot, victim);
+			if (replaced) {
+				evicted.incrementAndGet();
+				if (metrics != null) {
+					metrics.dropped(lowest.severity);
+				}
+				if (budget != null) {
+					budget.release(lowest);
+				}
+				if (lowest.pooled) {
+					pool.release(lowest);
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+}
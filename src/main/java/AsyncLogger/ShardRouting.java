@@ -0,0 +1,10 @@
+package AsyncLogger;
+
+// how the logs of a sharded AsyncLoggerManager are assigned to its shards
+@SuppressWarnings("unused")
+public enum ShardRouting {
+	// all the logs of a thread go to the same shard
+	THREAD,
+	// all the logs with the same marker go to the same shard, the logs without a marker are routed by thread
+	MARKER
+}
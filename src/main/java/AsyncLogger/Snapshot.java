@@ -0,0 +1,7 @@
+package AsyncLogger;
+
+// copy of an object that can change after it has been given to a deferred log
+@FunctionalInterface
+public interface Snapshot<E> {
+	E copy(E object);
+}
@@ -0,0 +1,185 @@
+package AsyncLogger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// each thread that logs has its own single-producer single-consumer buffer, so adding a log needs no CAS.
+// Every log takes a sequence from System.nanoTime() and the Logger thread merges the buffers in that order,
+// among the logs that are already in the buffers when it drains them.
+// The buffers of the threads that have died are removed once they are empty.
+class StripedLogQueue implements LogQueue {
+	
+	// nanoseconds that a blocked producer waits before trying again
+	private static final long BLOCK_PARK = 1000L;
+	
+	private final int capacity;
+	private final OverflowPolicy policy;
+	private final ThreadLocal<Stripe> local = ThreadLocal.withInitial(this::register);
+	// buffers of all the threads, copied when one is added or removed
+	private volatile Stripe[] stripes = new Stripe[0];
+	
+	// with EVICT_LOWER a full buffer discards the new log, only its own thread can write in it
+	StripedLogQueue(int capacity, @NotNull OverflowPolicy policy) {
+		if (capacity < 2 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Capacity must be >= 2 and <= " + (1 << 30));
+		}
+		this.capacity = Integer.highestOneBit(capacity - 1) << 1;
+		this.policy = policy;
+	}
+	
+	@Override
+	public boolean offer(Log log) {
+		final Stripe stripe = local.get();
+		log.sequence = System.nanoTime();
+		while (!stripe.offer(log)) {
+			if (policy != OverflowPolicy.BLOCK) {
+				return false;
+			}
+			LockSupport.parkNanos(BLOCK_PARK);
+		}
+		return true;
+	}
+	
+	@Override
+	public Log poll() {
+		final Stripe stripe = oldest(stripes);
+		return stripe != null ? stripe.poll() : null;
+	}
+	
+	@Override
+	public int drain(Log[] batch, int max) {
+		final Stripe[] current = stripes;
+		int size = 0;
+		Stripe stripe;
+		while (size < max && (stripe = oldest(current)) != null) {
+			batch[size++] = stripe.poll();
+		}
+		reclaim(current);
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		for (Stripe stripe : stripes) {
+			if (!stripe.isEmpty()) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public int size() {
+		long size = 0;
+		for (Stripe stripe : stripes) {
+			size += stripe.size();
+		}
+		return (int) Math.min(Integer.MAX_VALUE, size);
+	}
+	
+	// the buffer whose first log has the lowest sequence, null if all of them are empty
+	private static Stripe oldest(Stripe[] current) {
+		Stripe oldest = null;
+		long sequence = 0;
+		for (Stripe stripe : current) {
+			final Log first = stripe.peek();
+			if (first != null && (oldest == null || first.sequence - sequence < 0)) {
+				oldest = stripe;
+				sequence = first.sequence;
+			}
+		}
+		return oldest;
+	}
+	
+	private synchronized Stripe register() {
+		final Stripe stripe = new Stripe(Thread.currentThread(), capacity);
+		final Stripe[] current = stripes;
+		final Stripe[] next = new Stripe[current.length + 1];
+		System.arraycopy(current, 0, next, 0, current.length);
+		next[current.length] = stripe;
+		stripes = next;
+		return stripe;
+	}
+	
+	// remove the empty buffers of the threads that have died
+	private void reclaim(Stripe[] current) {
+		for (Stripe stripe : current) {
+			if (!stripe.owner.isAlive() && stripe.isEmpty()) {
+				remove(stripe);
+			}
+		}
+	}
+	
+	private synchronized void remove(Stripe stripe) {
+		final Stripe[] current = stripes;
+		int j = 0;
+		final Stripe[] next = new Stripe[current.length - 1];
+		for (Stripe s : current) {
+			if (s != stripe) {
+				next[j++] = s;
+			}
+		}
+		stripes = next;
+	}
+	
+	// bounded buffer written only by its owner and read only by the Logger thread
+	private static final class Stripe {
+		
+		private final Thread owner;
+		private final Log[] logs;
+		private final int mask;
+		// next position to write, moved only by the owner
+		private final AtomicLong tail = new AtomicLong();
+		// next position to read, moved only by the Logger thread
+		private final AtomicLong head = new AtomicLong();
+		// last head seen by the owner, to read the head only when the buffer looks full
+		private long headCache;
+		
+		Stripe(Thread owner, int capacity) {
+			this.owner = owner;
+			this.logs = new Log[capacity];
+			this.mask = capacity - 1;
+		}
+		
+		boolean offer(Log log) {
+			final long t = tail.get();
+			if (t - headCache >= logs.length) {
+				headCache = head.get();
+				if (t - headCache >= logs.length) {
+					return false;
+				}
+			}
+			logs[(int) t & mask] = log;
+			// the log is visible before the new tail
+			tail.lazySet(t + 1);
+			return true;
+		}
+		
+		Log peek() {
+			final long h = head.get();
+			return h < tail.get() ? logs[(int) h & mask] : null;
+		}
+		
+		Log poll() {
+			final long h = head.get();
+			if (h >= tail.get()) {
+				return null;
+			}
+			final int i = (int) h & mask;
+			final Log log = logs[i];
+			logs[i] = null;
+			head.lazySet(h + 1);
+			return log;
+		}
+		
+		boolean isEmpty() {
+			return head.get() >= tail.get();
+		}
+		
+		long size() {
+			return tail.get() - head.get();
+		}
+	}
+}
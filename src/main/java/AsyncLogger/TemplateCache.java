@@ -0,0 +1,34 @@
+package AsyncLogger;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+// bounded cache of the parsed messages, shared by the threads that format logs.
+// When it is full the new messages are parsed every time, so the templates already cached are never evicted
+// by messages built at runtime.
+final class TemplateCache {
+	
+	private final ConcurrentHashMap<String, MessageTemplate> templates;
+	private final int capacity;
+	
+	TemplateCache(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be > 0");
+		}
+		this.capacity = capacity;
+		this.templates = new ConcurrentHashMap<>(Math.min(capacity, 1024));
+	}
+	
+	MessageTemplate get(String message) {
+		MessageTemplate template = templates.get(message);
+		if (template == null) {
+			template = new MessageTemplate(message);
+			if (templates.size() < capacity) {
+				final MessageTemplate previous = templates.putIfAbsent(message, template);
+				if (previous != null) {
+					template = previous;
+				}
+			}
+		}
+		return template;
+	}
+}
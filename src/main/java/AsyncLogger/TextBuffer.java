@@ -0,0 +1,15 @@
+package AsyncLogger;
+
+// buffer of a message appended by the thread that logs, for a log that is not pooled: it is taken from the
+// LogBuilder of the thread and given back to it by the Logger thread once the log has been written
+final class TextBuffer {
+	
+	final StringBuilder text = new StringBuilder(128);
+	final LogBuilder owner;
+	// next of the buffers given back to the owner
+	TextBuffer next;
+	
+	TextBuffer(LogBuilder owner) {
+		this.owner = owner;
+	}
+}
@@ -0,0 +1,206 @@
+package AsyncLogger;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// how the Logger thread waits for new logs between two drains of the queue.
+// A strategy keeps the state of one Logger thread, so it must not be shared by different AsyncLoggerManager.
+@SuppressWarnings("unused")
+public abstract class WaitStrategy {
+	
+	// wait until there are logs in the queue or for at most millis milliseconds
+	abstract void await(LogQueue queue, long millis) throws InterruptedException;
+	
+	// called after a log has been added to the queue
+	void signal() {
+	}
+	
+	// called when the Logger thread must drain the queue now, by flush(), kill() and reconfigure()
+	void wake() {
+		signal();
+	}
+	
+	// a new strategy with the same settings, for another Logger thread
+	abstract WaitStrategy copy();
+	
+	// the Logger thread sleeps for the whole time, it is the lowest cpu usage and the highest latency.
+	// The new logs don't wake it, only flush(), kill() and reconfigure() do.
+	@NotNull
+	@Contract(" -> new")
+	public static WaitStrategy sleep() {
+		return new Sleep();
+	}
+	
+	// the Logger thread is parked and unparked by the first log added to the queue
+	@NotNull
+	@Contract(" -> new")
+	public static WaitStrategy park() {
+		return new Park();
+	}
+	
+	// the Logger thread yields the cpu until there are logs in the queue
+	@NotNull
+	@Contract(" -> new")
+	public static WaitStrategy yielding() {
+		return new Yield();
+	}
+	
+	// the Logger thread checks the queue in a loop, it is the lowest latency and it keeps a core busy
+	@NotNull
+	@Contract(" -> new")
+	public static WaitStrategy busySpin() {
+		return new BusySpin();
+	}
+	
+	// the Logger thread spins for spinMicros microseconds, then yields for yieldMicros microseconds,
+	// then it is parked until a log is added
+	@NotNull
+	@Contract("_, _ -> new")
+	public static WaitStrategy phasedBackoff(long spinMicros, long yieldMicros) {
+		if (spinMicros < 0 || yieldMicros < 0) {
+			throw new IllegalArgumentException("Spinning and yielding microseconds must be >= 0");
+		}
+		return new PhasedBackoff(TimeUnit.MICROSECONDS.toNanos(spinMicros),
+				TimeUnit.MICROSECONDS.toNanos(yieldMicros));
+	}
+	
+	private static class Sleep extends WaitStrategy {
+		
+		// the Logger thread while it sleeps, null otherwise
+		private volatile Thread waiting;
+		// set by wake() before or during the sleep, so the wake up is not lost
+		private volatile boolean woken;
+		
+		@Override
+		WaitStrategy copy() {
+			return new Sleep();
+		}
+		
+		@Override
+		void await(LogQueue queue, long millis) throws InterruptedException {
+			final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+			waiting = Thread.currentThread();
+			long nanos;
+			while (!woken && (nanos = deadline - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(this, nanos);
+				if (Thread.interrupted()) {
+					waiting = null;
+					throw new InterruptedException();
+				}
+			}
+			waiting = null;
+			woken = false;
+		}
+		
+		@Override
+		void wake() {
+			woken = true;
+			final Thread thread = waiting;
+			if (thread != null) {
+				LockSupport.unpark(thread);
+			}
+		}
+	}
+	
+	private static class Park extends WaitStrategy {
+		
+		// the Logger thread while it is parked, null otherwise
+		private volatile Thread waiting;
+		
+		@Override
+		WaitStrategy copy() {
+			return new Park();
+		}
+		
+		@Override
+		void await(LogQueue queue, long millis) {
+			park(queue, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+		}
+		
+		// park until the deadline, unless a log is added or the thread is unparked
+		final void park(LogQueue queue, long deadline) {
+			waiting = Thread.currentThread();
+			final long nanos = deadline - System.nanoTime();
+			// the queue is checked after the thread is visible to the producers, so no signal is lost
+			if (queue.isEmpty() && nanos > 0) {
+				LockSupport.parkNanos(this, nanos);
+			}
+			waiting = null;
+		}
+		
+		@Override
+		void signal() {
+			final Thread thread = waiting;
+			if (thread != null) {
+				waiting = null;
+				LockSupport.unpark(thread);
+			}
+		}
+	}
+	
+	private static class Yield extends WaitStrategy {
+		
+		@Override
+		WaitStrategy copy() {
+			return new Yield();
+		}
+		
+		@Override
+		void await(LogQueue queue, long millis) {
+			final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+			while (queue.isEmpty() && deadline - System.nanoTime() > 0) {
+				Thread.yield();
+			}
+		}
+	}
+	
+	private static class BusySpin extends WaitStrategy {
+		
+		@Override
+		WaitStrategy copy() {
+			return new BusySpin();
+		}
+		
+		@Override
+		void await(LogQueue queue, long millis) {
+			final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+			while (queue.isEmpty() && deadline - System.nanoTime() > 0) {
+				// spin
+			}
+		}
+	}
+	
+	private static class PhasedBackoff extends Park {
+		
+		private final long spinNanos;
+		private final long yieldNanos;
+		
+		PhasedBackoff(long spinNanos, long yieldNanos) {
+			this.spinNanos = spinNanos;
+			this.yieldNanos = yieldNanos;
+		}
+		
+		@Override
+		WaitStrategy copy() {
+			return new PhasedBackoff(spinNanos, yieldNanos);
+		}
+		
+		@Override
+		void await(LogQueue queue, long millis) {
+			final long start = System.nanoTime();
+			final long deadline = start + TimeUnit.MILLISECONDS.toNanos(millis);
+			long now = start;
+			while (queue.isEmpty() && now - start < spinNanos && deadline - now > 0) {
+				now = System.nanoTime();
+			}
+			while (queue.isEmpty() && now - start < spinNanos + yieldNanos && deadline - now > 0) {
+				Thread.yield();
+				now = System.nanoTime();
+			}
+			park(queue, deadline);
+		}
+	}
+}